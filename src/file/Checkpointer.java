@@ -0,0 +1,334 @@
+package file;
+
+import objects.ParticleStore;
+import objects.Thing;
+import physics.World;
+import status.MetricsClock;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Writes checkpoints of a {@code World} into a directory while it keeps running, periodically and on request, keeping only the last few.
+ * <p>
+ * When a checkpoint is due, the state is copied into a spare {@code ParticleStore} at the end of the next tick, on the thread that stepped the world,
+ * which costs no more than a few array copies; a background thread then writes the copy as a {@code Snapshot}, so the simulation never waits for the disk.
+ * There are two spare stores, so one checkpoint can be copied while the last one is still being written;
+ * if both are busy, the checkpoint is put off to the next tick, rather than stalling the simulation.
+ * <p>
+ * Each checkpoint is written to a temporary file, forced to the disk, then renamed in a single step to {@code checkpoint-<number>.snap},
+ * so a checkpoint under that name is always complete, even if the application dies while writing the next one.
+ * Numbers carry on from those already in the directory, and once a checkpoint is written, the oldest ones beyond the number to keep are deleted.
+ * Checkpoints can be loaded like any other snapshot; {@code latest()} finds the newest.
+ * @author Wei Liang
+ */
+public final class Checkpointer implements World.Listener {
+
+	private static final String PREFIX = "checkpoint-", SUFFIX = ".snap", TEMPORARY = ".tmp";
+	private static final int SPARES = 2;
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private final World world;
+	private final List<? extends Thing> objects;
+	private final File directory;
+	private final int kept;
+	private final ArrayBlockingQueue<Copy> free, full;
+	private final Thread writer;
+	private final ScheduledFuture<?> timer;
+	private static final Copy END = new Copy();
+
+	// only used by the writer
+	private final ArrayDeque<File> written = new ArrayDeque<>();
+	private long number;
+
+	private volatile boolean requested;
+	private volatile int tickDelay;
+	private volatile long checkpoints, skipped;
+	private volatile File latest;
+	private volatile IOException error;
+	private boolean closed;	// guarded by the lock on this checkpointer, which take() also holds, so no copy is passed on after the writer is told to stop
+
+	/**
+	 * A copy of the state waiting to be written, or a spare store for one.
+	 */
+	private static final class Copy {
+		final ParticleStore particles = new ParticleStore(0);
+		int[] fills = new int[0];
+		int tickDelay;
+		double width, height;
+	}
+
+	/**
+	 * Creates a checkpointer, and starts taking checkpoints of a world at the end of its ticks.
+	 * @param directory the directory to write the checkpoints into, which is created if it does not exist
+	 * @param world the world to take checkpoints of
+	 * @param objects the views onto the objects of the world, in the same order as in its store, which are only used for their fill colors;
+	 * the list should only be changed while the world is not being stepped
+	 * @param kept the number of checkpoints to keep
+	 * @param periodMillis the time between two periodic checkpoints, in milliseconds, or 0 to only take checkpoints on request
+	 * @throws IOException the directory could not be created
+	 * @throws IllegalArgumentException the number of checkpoints to keep is not positive, or the period is negative
+	 */
+	public Checkpointer(File directory, World world, List<? extends Thing> objects, int kept, long periodMillis) throws IOException {
+		if(kept <= 0 || periodMillis < 0)
+			throw new IllegalArgumentException("The number of checkpoints must be positive, and the period must not be negative!");
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create " + directory);
+		this.world = world;
+		this.objects = objects;
+		this.directory = directory;
+		this.kept = kept;
+		this.free = new ArrayBlockingQueue<>(SPARES);
+		this.full = new ArrayBlockingQueue<>(SPARES + 1);
+		for(int i = 0; i < SPARES; i++)
+			free.add(new Copy());
+		for(File f: list(directory))
+			written.add(f);
+		latest = written.peekLast();
+		if(latest != null)
+			number = numberOf(latest) + 1;
+		// temporary files left by a run that died while writing
+		final File[] files = directory.listFiles();
+		if(files != null)
+			for(File f: files)
+				if(f.getName().startsWith(PREFIX) && f.getName().endsWith(SUFFIX + TEMPORARY))
+					f.delete();
+		this.writer = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				drain();
+			}
+		}, "checkpoint-writer");
+		writer.setDaemon(true);
+		writer.start();
+		world.addListener(this);
+		this.timer = periodMillis == 0 ? null : MetricsClock.schedule(new Runnable(){
+			@Override
+			public void run(){
+				requested = true;
+			}
+		}, periodMillis);
+	}
+
+	/**
+	 * Sets the tick delay written into the checkpoints, since the world does not know it.
+	 * @param tickDelay the tick delay of the simulation
+	 */
+	public void setTickDelay(int tickDelay){
+		this.tickDelay = tickDelay;
+	}
+
+	/**
+	 * Takes a checkpoint at the end of the next tick. This may be called from any thread.
+	 */
+	public void request(){
+		requested = true;
+	}
+
+	/**
+	 * Takes a checkpoint at once, on the calling thread, for when the world is not running and so has no next tick.
+	 * The world must not be stepped while this is called.
+	 * @return whether the checkpoint was taken; if both spare stores were busy, it is taken at the end of the next tick instead
+	 */
+	public boolean checkpointNow(){
+		requested = true;
+		return take();
+	}
+
+	@Override
+	public void ticked(World world, int objectCollisions, int wallCollisions){
+		if(requested)
+			take();
+	}
+
+	/**
+	 * Copies the state into a spare store and passes it on to the writer, unless both spare stores are busy or this has been closed.
+	 */
+	private synchronized boolean take(){
+		if(closed)
+			return false;
+		final Copy c = free.poll();
+		if(c == null)
+			return false;
+		requested = false;
+		final ParticleStore particles = world.getParticles();
+		final int n = particles.count();
+		if(objects.size() != n){
+			skipped++;
+			free.add(c);
+			return false;
+		}
+		c.particles.copyFrom(particles);
+		if(c.fills.length < n)
+			c.fills = new int[n];
+		for(int i = 0; i < n; i++)
+			c.fills[i] = Snapshot.pack(objects.get(i).getFill());
+		c.tickDelay = tickDelay;
+		c.width = world.getWidth();
+		c.height = world.getHeight();
+		full.add(c);
+		return true;
+	}
+
+	/**
+	 * Writes copies as they are taken, until this is closed.
+	 */
+	private void drain(){
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+		try{
+			while(true){
+				final Copy c = full.take();
+				if(c == END)
+					break;
+				try{
+					write(c, buffer);
+				}catch(IOException e){
+					error = e;
+				}finally{
+					free.add(c);
+				}
+			}
+		}catch(InterruptedException e){
+		}
+	}
+
+	/**
+	 * Writes a copy as the next checkpoint, then deletes the oldest checkpoints beyond the number to keep.
+	 */
+	private void write(Copy c, ByteBuffer buffer) throws IOException {
+		final File target = new File(directory, PREFIX + String.format("%06d", number) + SUFFIX);
+		final File temporary = new File(directory, target.getName() + TEMPORARY);
+		try{
+			final FileOutputStream out = new FileOutputStream(temporary);
+			try{
+				final FileChannel channel = out.getChannel();
+				Snapshot.write(channel, c.particles, c.fills, c.tickDelay, c.width, c.height, buffer);
+				channel.force(true);
+			}finally{
+				out.close();
+			}
+			Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}catch(IOException e){
+			temporary.delete();
+			throw e;
+		}
+		number++;
+		written.add(target);
+		while(written.size() > kept)
+			written.poll().delete();
+		latest = target;
+		checkpoints++;
+	}
+
+	/**
+	 * Stops taking checkpoints, and waits for those already taken to be written.
+	 * This may be called from any thread, even while the world is being stepped. Nothing is done if this has already been closed.
+	 * @throws IOException the last checkpoint that failed to be written, if any did
+	 */
+	public synchronized void close() throws IOException {
+		if(closed)
+			return;
+		closed = true;
+		if(timer != null)
+			timer.cancel(false);
+		world.removeListener(this);
+		full.add(END);
+		try{
+			writer.join();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		if(error != null)
+			throw error;
+	}
+
+	/**
+	 * @return the number of checkpoints written so far
+	 */
+	public long getCheckpoints(){
+		return checkpoints;
+	}
+
+	/**
+	 * @return the number of checkpoints that were not taken because the views did not match the objects of the world
+	 */
+	public long getSkipped(){
+		return skipped;
+	}
+
+	/**
+	 * @return the last checkpoint written, including those found in the directory at the start, or null if there is none
+	 */
+	public File getLatest(){
+		return latest;
+	}
+
+	/**
+	 * @return the last failure to write a checkpoint, or null if there was none; later checkpoints are still attempted after a failure
+	 */
+	public IOException getError(){
+		return error;
+	}
+
+	/**
+	 * Finds the newest complete checkpoint in a directory.
+	 * @param directory the directory
+	 * @return the checkpoint, or null if there is none
+	 */
+	public static File latest(File directory){
+		final File[] checkpoints = list(directory);
+		return checkpoints.length == 0 ? null : checkpoints[checkpoints.length - 1];
+	}
+
+	/**
+	 * @return the complete checkpoints in a directory, from the oldest to the newest
+	 */
+	private static File[] list(File directory){
+		final File[] files = directory.listFiles();
+		final ArrayList<File> checkpoints = new ArrayList<>();
+		if(files != null)
+			for(File f: files)
+				if(numberOf(f) >= 0)
+					checkpoints.add(f);
+		Collections.sort(checkpoints, new Comparator<File>(){
+			@Override
+			public int compare(File a, File b){
+				return Long.compare(numberOf(a), numberOf(b));
+			}
+		});
+		return checkpoints.toArray(new File[checkpoints.size()]);
+	}
+
+	/**
+	 * @return the number of a checkpoint, or -1 if the file is not one
+	 */
+	private static long numberOf(File f){
+		final String name = f.getName();
+		if(!name.startsWith(PREFIX) || !name.endsWith(SUFFIX))
+			return -1;
+		final String digits = name.substring(PREFIX.length(), name.length() - SUFFIX.length());
+		if(digits.isEmpty())
+			return -1;
+		for(int i = 0; i < digits.length(); i++)
+			if(digits.charAt(i) < '0' || digits.charAt(i) > '9')
+				return -1;
+		try{
+			return Long.parseLong(digits);
+		}catch(NumberFormatException e){
+			return -1;
+		}
+	}
+
+}
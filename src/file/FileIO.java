@@ -2,37 +2,79 @@ package file;
 
 import javafx.scene.Group;
 import javafx.scene.Scene;
-import javafx.scene.layout.StackPane;
 import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import objects.ParticleStore;
 import objects.Thing;
 import ui.Simulator;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.ResourceBundle;
-import java.util.Scanner;
 
 /**
  * Contains utilities for reading and writing object data from files.
+ * The state is saved as a binary {@code Snapshot} by default; the original text format, one line per object, is kept for import and export.
  * @author Wei Liang
  */
 public final class FileIO {
 	
+	private static final FileChooser.ExtensionFilter snapshotFilter = new FileChooser.ExtensionFilter("Snapshot", "*.snap");
+	private static final FileChooser.ExtensionFilter textFilter = new FileChooser.ExtensionFilter("Text", "*.txt");
+	
 	/**
-	 * Saves the state of the simulation in a file.
+	 * Saves the state of the simulation in a file, as a snapshot unless the text format is chosen.
 	 * Note that each object is saved as a {@code Thing}, and any additional data is lost.
 	 */
 	public static final void saveData(){
 		FileChooser saveloc = new FileChooser();
 		saveloc.setTitle(Simulator.getI18nUtils().getString("saveState"));
+		saveloc.getExtensionFilters().addAll(snapshotFilter, textFilter);
+		final File file = saveloc.showSaveDialog(Simulator.getInstance().getWindow());
+		if(file == null)
+			return;
+		if(saveloc.getSelectedExtensionFilter() == textFilter || file.getName().endsWith(".txt"))
+			saveText(file);
+		else
+			saveSnapshot(file);
+	}
+	
+	/**
+	 * Saves the state of the simulation in a file, in the binary format of {@code Snapshot}, replacing the file if it exists.
+	 * @param file the file to write
+	 */
+	public static final void saveSnapshot(File file){
+		final Simulator sim = Simulator.getInstance();
+		final ArrayList<Thing> objects = sim.getObjects();
+		final int[] fills = new int[objects.size()];
+		for(int i = 0; i < fills.length; i++)
+			fills[i] = Snapshot.pack(objects.get(i).getFill());
 		try {
-			PrintWriter pw = new PrintWriter(new FileOutputStream(saveloc.showSaveDialog(Simulator.getInstance().getWindow())));
+			final FileOutputStream out = new FileOutputStream(file);
+			try {
+				Snapshot.write(out.getChannel(), sim.getParticles(), fills, sim.getTickDelay(), sim.getWorld().getWidth(), sim.getWorld().getHeight(), ByteBuffer.allocate(1 << 16));
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			showBadFileWarning();
+		}
+	}
+	
+	/**
+	 * Saves the state of the simulation in a file, in the text format.
+	 * @param file the file to write
+	 */
+	public static final void saveText(File file){
+		try {
+			PrintWriter pw = new PrintWriter(new FileOutputStream(file));
 			pw.println(ResourceBundle.getBundle(Simulator.getI18nUtils().strings).getString("appName"));
 			pw.println(Simulator.getInstance().getTickDelay());
 			ArrayList<Thing> objects = Simulator.getInstance().getObjects(); 
@@ -43,39 +85,82 @@ public final class FileIO {
 	}
 	
 	/**
-	 * Loads the state of the simulation from a file.
+	 * Loads the state of the simulation from a file, in either format.
 	 * Note that each object is loaded as a {@code Thing}, since any additional data is lost in saving.
 	 */
 	public static final void loadData(){
 		FileChooser loadloc = new FileChooser();
 		loadloc.setTitle(Simulator.getI18nUtils().getString("loadState"));
+		loadloc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("Snapshot, Text", "*.snap", "*.txt"), new FileChooser.ExtensionFilter("*", "*"));
+		final File file = loadloc.showOpenDialog(Simulator.getInstance().getWindow());
+		if(file == null)
+			return;
+		if(Snapshot.isSnapshot(file))
+			loadSnapshot(file);
+		else
+			loadText(file);
+	}
+	
+	/**
+	 * Loads the state of the simulation from a file in the binary format of {@code Snapshot}.
+	 * The objects are read into a store of their own, which is only put in place once the whole file has been read,
+	 * so the current objects are kept if the file cannot be read. The field is then resized to the size it had when the snapshot was taken.
+	 * @param file the file to read
+	 */
+	public static final void loadSnapshot(File file){
+		final Simulator sim = Simulator.getInstance();
+		final Snapshot snapshot;
 		try {
-			Scanner sc = new Scanner(new FileInputStream(loadloc.showOpenDialog(Simulator.getInstance().getWindow())));
-			if(!sc.nextLine().equals(ResourceBundle.getBundle(Simulator.getI18nUtils().strings).getString("appName"))){
-				final Stage badFileWarning = new Stage();
-				badFileWarning.initStyle(StageStyle.UTILITY);
-				badFileWarning.setScene(new Scene(new Group(new Text(0, 35, Simulator.getI18nUtils().getString("badFile"))), 200, 50));
-				badFileWarning.setTitle(Simulator.getI18nUtils().getString("badFile"));
-				badFileWarning.setResizable(false);
-				badFileWarning.show();
-				sc.close();
-				return;
-			}
-			final int tick = Integer.parseInt(sc.nextLine());
-			ArrayList<Thing> stuff = new ArrayList<>();
-			try{
-				while(sc.hasNextLine())
-					stuff.add(Thing.loadFromData(sc.nextLine()));
-			}finally{
-				sc.close();
-			}
-			Simulator.getInstance().setTickDelay(tick);
-			Simulator.getInstance().getObjects().clear();
-			Simulator.getInstance().getObjects().addAll(stuff);
-			((StackPane) Simulator.getInstance().getField()).getChildren().clear();
-			for(Thing t: stuff)
-				((StackPane) Simulator.getInstance().getField()).getChildren().add(t.toNode());
-		} catch (FileNotFoundException e) {}
+			snapshot = Snapshot.read(file, new ParticleStore(1));
+		} catch (IOException e) {
+			showBadFileWarning();
+			return;
+		}
+		sim.setTickDelay(snapshot.getTickDelay());
+		sim.getObjects().clear();
+		sim.getParticles().moveFrom(snapshot.getParticles());
+		sim.getObjects().addAll(snapshot.toThings(sim.getParticles()));
+		sim.refreshField();
+		sim.resizeField(snapshot.getWidth(), snapshot.getHeight());
+	}
+	
+	/**
+	 * Loads the state of the simulation from a file in the text format.
+	 * The file is parsed on every processor by a {@code TextLoader}, and the objects read are then put in place in one step.
+	 * @param file the file to read
+	 */
+	public static final void loadText(File file){
+		final Simulator sim = Simulator.getInstance();
+		final TextLoader loaded;
+		try {
+			loaded = TextLoader.read(file, ResourceBundle.getBundle(Simulator.getI18nUtils().strings).getString("appName"), Runtime.getRuntime().availableProcessors());
+		} catch (IOException e) {
+			showBadFileWarning();
+			return;
+		}
+		sim.setTickDelay(loaded.getTickDelay());
+		sim.getObjects().clear();
+		sim.getParticles().moveFrom(loaded.getParticles());
+		sim.getObjects().addAll(loaded.toThings(sim.getParticles()));
+		sim.refreshField();
+	}
+	
+	private static void showBadFileWarning(){
+		showWarning("badFile");
+	}
+	
+	/**
+	 * Shows a small window with a message, without waiting for it to be closed.
+	 * This must be called on the JavaFX Application Thread.
+	 * @param key the key of the message in the accompanying {@code ResourceBundle}, which is also the title of the window
+	 */
+	public static final void showWarning(String key){
+		final Stage warning = new Stage();
+		warning.initStyle(StageStyle.UTILITY);
+		warning.setScene(new Scene(new Group(new Text(0, 35, Simulator.getI18nUtils().getString(key))), 200, 50));
+		warning.setTitle(Simulator.getI18nUtils().getString(key));
+		warning.setResizable(false);
+		warning.show();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,247 @@
+package file;
+
+import javafx.scene.paint.Color;
+import objects.ParticleStore;
+import objects.Thing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The state of a simulation in a versioned binary format, which can be written and read far faster than the text format of {@code FileIO}.
+ * <p>
+ * A snapshot is a header followed by one column per field of a {@code ParticleStore}, each holding that field for every object in order,
+ * all in little-endian byte order:
+ * <pre>
+ * int    magic ("CSIM")
+ * int    version
+ * int    tick delay
+ * int    number of objects, n
+ * double width of the field
+ * double height of the field
+ * double x[n], y[n], vx[n], vy[n]
+ * int    size[n], mass[n], fill[n]
+ * </pre>
+ * Each fill color is packed as 8 bits each of alpha, red, green and blue, from the highest bits.
+ * Columns are copied in bulk from the arrays of the store through a buffer, and back into them from a memory-mapped file, without going through individual {@code Thing}s.
+ * @author Wei Liang
+ */
+public final class Snapshot {
+
+	/**
+	 * The first four bytes of every snapshot, which are "CSIM" in ASCII, read as a little-endian int.
+	 */
+	public static final int MAGIC = 0x4D495343;
+
+	/**
+	 * The version of the format written by this class. Snapshots of any other version cannot be read.
+	 */
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 32;
+
+	private final int tickDelay;
+	private final double width, height;
+	private final ParticleStore particles;
+	private final int[] fills;
+
+	private Snapshot(int tickDelay, double width, double height, ParticleStore particles, int[] fills) {
+		this.tickDelay = tickDelay;
+		this.width = width;
+		this.height = height;
+		this.particles = particles;
+		this.fills = fills;
+	}
+
+	/**
+	 * Writes a snapshot through a channel, a buffer at a time.
+	 * The file is never memory-mapped for writing, since a file that has been mapped may not be renamed, deleted or written again on some platforms
+	 * until the mapping is garbage collected, whereas one written this way can be as soon as the channel is closed.
+	 * @param channel the channel to write to, from its current position
+	 * @param particles the store holding the objects
+	 * @param fills the packed fill color of every object, in the same order as in the store
+	 * @param tickDelay the tick delay of the simulation
+	 * @param width the width of the field
+	 * @param height the height of the field
+	 * @param buffer the buffer the bytes go through, which must hold at least the header; its contents and byte order are overwritten
+	 * @throws IOException the channel could not be written
+	 */
+	static void write(WritableByteChannel channel, ParticleStore particles, int[] fills, int tickDelay, double width, double height, ByteBuffer buffer) throws IOException {
+		final int n = particles.count();
+		buffer.clear();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(tickDelay).putInt(n).putDouble(width).putDouble(height);
+		for(double[] column: new double[][]{particles.x, particles.y, particles.vx, particles.vy}){
+			for(int i = 0; i < n;){
+				final int k = Math.min(n - i, buffer.remaining()/8);
+				if(k == 0){
+					drain(channel, buffer);
+					continue;
+				}
+				buffer.asDoubleBuffer().put(column, i, k);
+				buffer.position(buffer.position() + 8*k);
+				i += k;
+			}
+		}
+		for(int[] column: new int[][]{particles.size, particles.mass, fills}){
+			for(int i = 0; i < n;){
+				final int k = Math.min(n - i, buffer.remaining()/4);
+				if(k == 0){
+					drain(channel, buffer);
+					continue;
+				}
+				buffer.asIntBuffer().put(column, i, k);
+				buffer.position(buffer.position() + 4*k);
+				i += k;
+			}
+		}
+		drain(channel, buffer);
+	}
+
+	private static void drain(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Reads a snapshot from a file.
+	 * @param file the file to read
+	 * @param into the store to read the objects into, whose previous contents are discarded; any {@code Thing} that was a view onto it should be discarded too
+	 * @return the snapshot, holding the given store
+	 * @throws IOException the file could not be read, or is not a snapshot of this version, or the size of the field in it is not positive
+	 */
+	public static Snapshot read(File file, ParticleStore into) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try{
+			final FileChannel channel = raf.getChannel();
+			if(channel.size() < HEADER_BYTES)
+				throw new IOException("Not a snapshot: " + file);
+			final ByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			if(header.getInt() != MAGIC)
+				throw new IOException("Not a snapshot: " + file);
+			final int version = header.getInt();
+			if(version != VERSION)
+				throw new IOException("Unsupported snapshot version " + version + ": " + file);
+			final int tickDelay = header.getInt(), n = header.getInt();
+			final double width = header.getDouble(), height = header.getDouble();
+			if(!(width > 0 && width < Double.POSITIVE_INFINITY && height > 0 && height < Double.POSITIVE_INFINITY))
+				throw new IOException("Bad field size in snapshot: " + file);
+			if(n < 0 || channel.size() != HEADER_BYTES + 44L*n)
+				throw new IOException("Truncated snapshot: " + file);
+			into.setCount(n);
+			final int[] fills = new int[n];
+			long offset = HEADER_BYTES;
+			for(double[] column: new double[][]{into.x, into.y, into.vx, into.vy}){
+				map(channel, FileChannel.MapMode.READ_ONLY, offset, 8L*n).asDoubleBuffer().get(column, 0, n);
+				offset += 8L*n;
+			}
+			for(int[] column: new int[][]{into.size, into.mass, fills}){
+				map(channel, FileChannel.MapMode.READ_ONLY, offset, 4L*n).asIntBuffer().get(column, 0, n);
+				offset += 4L*n;
+			}
+			return new Snapshot(tickDelay, width, height, into, fills);
+		}finally{
+			raf.close();
+		}
+	}
+
+	/**
+	 * @param file the file to check
+	 * @return whether the file begins with the magic number of a snapshot
+	 */
+	public static boolean isSnapshot(File file) {
+		try{
+			final RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try{
+				return raf.length() >= HEADER_BYTES && Integer.reverseBytes(raf.readInt()) == MAGIC;
+			}finally{
+				raf.close();
+			}
+		}catch(IOException e){
+			return false;
+		}
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long offset, long length) throws IOException {
+		final MappedByteBuffer buffer = channel.map(mode, offset, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	/**
+	 * @return a color packed as 8 bits each of alpha, red, green and blue, from the highest bits
+	 */
+	static int pack(Color c) {
+		return (int) Math.round(c.getOpacity()*255) << 24 | (int) Math.round(c.getRed()*255) << 16 | (int) Math.round(c.getGreen()*255) << 8 | (int) Math.round(c.getBlue()*255);
+	}
+
+	/**
+	 * Creates a view onto every object read, without copying their state, once the store holding them has been put in place.
+	 * Objects of the same color share a single {@code Color}.
+	 * @param particles the store holding the objects read, such as one they have been moved to through {@code ParticleStore.moveFrom()}
+	 * @return the views, in the same order as in the store
+	 */
+	public ArrayList<Thing> toThings(ParticleStore particles) {
+		return toThings(particles, fills);
+	}
+
+	/**
+	 * Creates a view onto every object in a store, without copying their state.
+	 * @param particles the store holding the objects
+	 * @param fills the fill color of each object, packed by {@code pack()}
+	 * @return the views, in the same order as in the store
+	 */
+	static ArrayList<Thing> toThings(ParticleStore particles, int[] fills) {
+		final ArrayList<Thing> things = new ArrayList<>(fills.length);
+		final HashMap<Integer, Color> colors = new HashMap<>();
+		for(int i = 0; i < fills.length; i++){
+			Color fill = colors.get(fills[i]);
+			if(fill == null){
+				final int argb = fills[i];
+				fill = Color.rgb(argb >> 16 & 0xFF, argb >> 8 & 0xFF, argb & 0xFF, (argb >>> 24)/255.0);
+				colors.put(argb, fill);
+			}
+			things.add(Thing.viewOf(particles, i, fill));
+		}
+		return things;
+	}
+
+	/**
+	 * @return the tick delay of the simulation
+	 */
+	public int getTickDelay() {
+		return tickDelay;
+	}
+
+	/**
+	 * @return the width of the field
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the field
+	 */
+	public double getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the store holding the objects
+	 */
+	public ParticleStore getParticles() {
+		return particles;
+	}
+
+}
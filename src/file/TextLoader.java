@@ -0,0 +1,485 @@
+package file;
+
+import objects.ParticleStore;
+import objects.Thing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads a simulation saved in the text format of {@code FileIO}, spreading the work over several threads, for files with millions of objects.
+ * <p>
+ * The file is memory-mapped and split into chunks on line boundaries. The lines of every chunk are first counted in parallel,
+ * which gives each chunk the index of its first object; the chunks are then parsed in parallel, each straight into its own range of a {@code ParticleStore},
+ * without creating a {@code Thing} per line. The views onto the objects are only created once the store has been put in place.
+ * <p>
+ * As in a {@code Snapshot}, fill colors are packed into 8 bits per channel, so a color that was not a whole number of 255ths is rounded to the nearest one.
+ * Blank lines are skipped, and lines may end with either a line feed or a carriage return and a line feed.
+ * @author Wei Liang
+ */
+public final class TextLoader {
+
+	/**
+	 * The largest chunk of lines parsed by one task, so that a chunk can always be mapped at once.
+	 */
+	private static final int MAX_CHUNK_BYTES = 64 << 20;
+	private static final int CHUNKS_PER_THREAD = 4;
+	/**
+	 * The most bytes looked at for the two lines of the header.
+	 */
+	private static final int MAX_HEADER_BYTES = 1 << 16;
+	/**
+	 * The size of the arrays the chunks are copied into, which is also the longest line that can be read.
+	 */
+	private static final int WINDOW_BYTES = 1 << 16;
+	/**
+	 * The powers of ten that are exact as doubles.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final int tickDelay;
+	private final ParticleStore particles;
+	private final int[] fills;
+
+	private TextLoader(int tickDelay, ParticleStore particles, int[] fills) {
+		this.tickDelay = tickDelay;
+		this.particles = particles;
+		this.fills = fills;
+	}
+
+	/**
+	 * Reads a simulation saved in the text format.
+	 * @param file the file to read
+	 * @param appName the name of the application, which must be the first line of the file
+	 * @param parallelism the number of threads to parse the file with
+	 * @return the objects read, in a store of their own
+	 * @throws IOException the file could not be read, or is not a simulation saved by this application, or has a line that is not an object
+	 */
+	public static TextLoader read(File file, String appName, int parallelism) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		final ForkJoinPool pool = new ForkJoinPool(Math.max(parallelism, 1));
+		try{
+			final FileChannel channel = raf.getChannel();
+			final long length = channel.size();
+
+			// the header, which is the name of the application and the tick delay
+			final MappedByteBuffer head = map(channel, 0, Math.min(length, MAX_HEADER_BYTES));
+			final int nameEnd = lineEnd(head, 0);
+			final int delayEnd = lineEnd(head, nameEnd + 1);
+			if(nameEnd == head.limit() || delayEnd == head.limit() && head.limit() < length
+					|| !text(head, 0, nameEnd, Charset.defaultCharset()).equals(appName))
+				throw new IOException("Not a saved simulation: " + file);
+			final int tickDelay;
+			try{
+				tickDelay = Integer.parseInt(text(head, nameEnd + 1, delayEnd, Charset.forName("US-ASCII")).trim());
+			}catch(NumberFormatException e){
+				throw new IOException("Not a saved simulation: " + file, e);
+			}
+			final long start = Math.min(delayEnd + 1L, length);
+
+			// the chunks, each starting at the start of a line
+			int chunks = (int) Math.max(CHUNKS_PER_THREAD*pool.getParallelism(), (length - start + MAX_CHUNK_BYTES/2 - 1)/(MAX_CHUNK_BYTES/2));
+			chunks = (int) Math.max(1, Math.min(chunks, length - start));
+			final long[] bounds = new long[chunks + 1];
+			bounds[0] = start;
+			for(int c = 1; c < chunks; c++)
+				bounds[c] = Math.max(bounds[c-1], nextLine(channel, start + (length - start)*c/chunks - 1, length));
+			bounds[chunks] = length;
+			for(int c = 0; c < chunks; c++)
+				if(bounds[c+1] - bounds[c] > MAX_CHUNK_BYTES)
+					throw new IOException("Line too long in " + file);
+
+			// the number of objects in each chunk, and so the index of the first object of each chunk
+			final long[] firsts = new long[chunks + 1];
+			pool.invoke(new Count(channel, bounds, firsts, 0, chunks));
+			for(int c = 0; c < chunks; c++)
+				firsts[c+1] += firsts[c];
+			if(firsts[chunks] > Integer.MAX_VALUE - 8)
+				throw new IOException("Too many objects in " + file);
+
+			final int n = (int) firsts[chunks];
+			final ParticleStore particles = new ParticleStore(n);
+			particles.setCount(n);
+			final int[] fills = new int[n];
+			final Parse parse = new Parse(channel, bounds, firsts, particles, fills, 0, chunks);
+			pool.invoke(parse);
+			if(parse.error != null)
+				throw new IOException(parse.error + " in " + file);
+			return new TextLoader(tickDelay, particles, fills);
+		}catch(UncheckedIOException e){
+			throw e.getCause();
+		}finally{
+			pool.shutdown();
+			raf.close();
+		}
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+	}
+
+	/**
+	 * @return the index of the first line feed at or after an index, or the limit of the buffer if there is none
+	 */
+	private static int lineEnd(MappedByteBuffer b, int from){
+		for(int i = from; i < b.limit(); i++)
+			if(b.get(i) == '\n')
+				return i;
+		return b.limit();
+	}
+
+	/**
+	 * @return the text between two indices, without a carriage return at the end
+	 */
+	private static String text(MappedByteBuffer b, int from, int to, Charset charset){
+		if(to > from && b.get(to - 1) == '\r')
+			to--;
+		final byte[] bytes = new byte[Math.max(to - from, 0)];
+		for(int i = 0; i < bytes.length; i++)
+			bytes[i] = b.get(from + i);
+		return new String(bytes, charset);
+	}
+
+	/**
+	 * @return the offset just after the first line feed at or after an offset, or the length of the file if there is none
+	 */
+	private static long nextLine(FileChannel channel, long from, long length) throws IOException {
+		for(long offset = from; offset < length; offset += MAX_HEADER_BYTES){
+			final MappedByteBuffer window = map(channel, offset, Math.min(MAX_HEADER_BYTES, length - offset));
+			final int end = lineEnd(window, 0);
+			if(end < window.limit())
+				return offset + end + 1;
+		}
+		return length;
+	}
+
+	/**
+	 * Counts the lines that are not blank in every chunk of a range, storing the count of chunk {@code c} at {@code counts[c+1]}.
+	 */
+	private static final class Count extends RecursiveAction {
+		private static final long serialVersionUID = -2210387442612843817L;
+		private final FileChannel channel;
+		private final long[] bounds, counts;
+		private final int from, to;
+
+		Count(FileChannel channel, long[] bounds, long[] counts, int from, int to){
+			this.channel = channel;
+			this.bounds = bounds;
+			this.counts = counts;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from > 1){
+				final int mid = (from + to) >>> 1;
+				invokeAll(new Count(channel, bounds, counts, from, mid), new Count(channel, bounds, counts, mid, to));
+				return;
+			}
+			final MappedByteBuffer b;
+			try{
+				b = map(channel, bounds[from], bounds[from+1] - bounds[from]);
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+			final byte[] window = new byte[WINDOW_BYTES];
+			long lines = 0;
+			boolean blank = true;
+			while(b.hasRemaining()){
+				final int n = Math.min(window.length, b.remaining());
+				b.get(window, 0, n);
+				for(int i = 0; i < n; i++){
+					final byte c = window[i];
+					if(c == '\n'){
+						if(!blank)
+							lines++;
+						blank = true;
+					}else if((c & 0xFF) > ' ')
+						blank = false;
+				}
+			}
+			if(!blank)
+				lines++;
+			counts[from + 1] = lines;
+		}
+	}
+
+	/**
+	 * Parses every chunk of a range into the store, from the index of the first object of each chunk.
+	 */
+	private static final class Parse extends RecursiveAction {
+		private static final long serialVersionUID = 4061872312250397164L;
+		private final FileChannel channel;
+		private final long[] bounds, firsts;
+		private final ParticleStore particles;
+		private final int[] fills;
+		private final int from, to;
+		// the first line that could not be parsed, if any
+		volatile String error;
+
+		Parse(FileChannel channel, long[] bounds, long[] firsts, ParticleStore particles, int[] fills, int from, int to){
+			this.channel = channel;
+			this.bounds = bounds;
+			this.firsts = firsts;
+			this.particles = particles;
+			this.fills = fills;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from > 1){
+				final int mid = (from + to) >>> 1;
+				final Parse left = new Parse(channel, bounds, firsts, particles, fills, from, mid), right = new Parse(channel, bounds, firsts, particles, fills, mid, to);
+				invokeAll(left, right);
+				error = left.error != null ? left.error : right.error;
+				return;
+			}
+			try{
+				parse();
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void parse() throws IOException {
+			final MappedByteBuffer b = map(channel, bounds[from], bounds[from+1] - bounds[from]);
+			final FieldReader r = new FieldReader(b);
+			int index = (int) firsts[from];
+			try{
+				while(r.nextLine()){
+					particles.x[index] = r.nextDouble();
+					particles.y[index] = r.nextDouble();
+					particles.size[index] = r.nextInt();
+					particles.mass[index] = r.nextInt();
+					particles.vx[index] = r.nextDouble();
+					particles.vy[index] = r.nextDouble();
+					fills[index] = 0xFF << 24 | component(r.nextDouble()) << 16 | component(r.nextDouble()) << 8 | component(r.nextDouble());
+					r.endLine();
+					index++;
+				}
+			}catch(NumberFormatException e){
+				error = "Invalid object at byte " + (bounds[from] + r.lineStart);
+			}
+		}
+
+		private static int component(double c){
+			if(!(c >= 0 && c <= 1))
+				throw new NumberFormatException("Color component out of range: " + c);
+			return (int) Math.round(c*255);
+		}
+	}
+
+	/**
+	 * Reads the comma-separated fields of the lines of a chunk, skipping blank lines.
+	 * The chunk is copied a window at a time into an array, which is far faster to go through than the mapped buffer itself.
+	 */
+	private static final class FieldReader {
+		private final MappedByteBuffer b;
+		private final byte[] window = new byte[WINDOW_BYTES];
+		private final char[] chars = new char[64];
+		// the offset in the chunk of the start of the window, the number of bytes in the window, and where the reader is in the current line
+		private long windowOffset;
+		private int filled, position, lineEnd;
+		long lineStart;
+
+		FieldReader(MappedByteBuffer b){
+			this.b = b;
+		}
+
+		/**
+		 * Moves to the next line that is not blank.
+		 * @return whether there is one
+		 * @throws NumberFormatException the line does not fit in the window
+		 */
+		boolean nextLine(){
+			while(true){
+				int end = position;
+				while(true){
+					while(end < filled && window[end] != '\n')
+						end++;
+					if(end < filled || !b.hasRemaining())
+						break;
+					end -= refill();
+				}
+				if(position >= filled)
+					return false;
+				lineStart = windowOffset + position;
+				lineEnd = end;
+				for(int i = position; i < end; i++)
+					if((window[i] & 0xFF) > ' ')
+						return true;
+				position = end + 1;
+			}
+		}
+
+		/**
+		 * Moves what is left of the window to its start, then fills the rest of it from the chunk.
+		 * @return how far the contents were moved back
+		 */
+		private int refill(){
+			final int shift = position;
+			if(shift == 0 && filled == window.length)
+				throw new NumberFormatException("Line too long");
+			System.arraycopy(window, shift, window, 0, filled - shift);
+			filled -= shift;
+			position = 0;
+			windowOffset += shift;
+			final int n = Math.min(window.length - filled, b.remaining());
+			b.get(window, filled, n);
+			filled += n;
+			return shift;
+		}
+
+		/**
+		 * Checks that nothing but blanks is left on the line, and moves past its end.
+		 */
+		void endLine(){
+			for(int i = position; i < lineEnd; i++)
+				if((window[i] & 0xFF) > ' ')
+					throw new NumberFormatException("Too many fields");
+			position = lineEnd + 1;
+		}
+
+		/**
+		 * @return the next field, trimmed, as characters in {@code chars}, ending at the returned length
+		 */
+		private int nextField(){
+			if(position > lineEnd)
+				throw new NumberFormatException("Too few fields");
+			int length = 0;
+			while(position < lineEnd){
+				final byte c = window[position++];
+				if(c == ',')
+					break;
+				if((c & 0xFF) <= ' ')
+					continue;
+				if(length == chars.length)
+					throw new NumberFormatException("Field too long");
+				chars[length++] = (char) (c & 0xFF);
+			}
+			if(position == lineEnd)
+				position++;
+			if(length == 0)
+				throw new NumberFormatException("Empty field");
+			return length;
+		}
+
+		double nextDouble(){
+			final int length = nextField();
+			final double value = parseSimple(length);
+			return value == value ? value : Double.parseDouble(new String(chars, 0, length));
+		}
+
+		/**
+		 * Parses a decimal number whose digits fit in the 53 bits of a double, as most of those written by {@code Double.toString()} do, without creating a {@code String}.
+		 * Such digits, and a power of ten up to 10^22, are exact as doubles, so their product or quotient is only rounded once, to the same double as {@code Double.parseDouble()} gives.
+		 * @return the number, or NaN if it has to be left to {@code Double.parseDouble()}
+		 */
+		private double parseSimple(int length){
+			int i = 0;
+			boolean negative = false;
+			if(chars[0] == '-' || chars[0] == '+'){
+				negative = chars[0] == '-';
+				i++;
+			}
+			long digits = 0;
+			int exponent = 0;
+			boolean point = false, any = false;
+			for(; i < length && chars[i] != 'E' && chars[i] != 'e'; i++){
+				final char c = chars[i];
+				if(c >= '0' && c <= '9'){
+					if(digits >= 1L << 53)
+						return Double.NaN;
+					digits = digits*10 + (c - '0');
+					any = true;
+					if(point)
+						exponent--;
+				}else if(c == '.' && !point)
+					point = true;
+				else
+					return Double.NaN;
+			}
+			if(!any)
+				return Double.NaN;
+			if(i < length){
+				i++;
+				boolean negativeExponent = false;
+				if(i < length && (chars[i] == '-' || chars[i] == '+')){
+					negativeExponent = chars[i] == '-';
+					i++;
+				}
+				if(i == length || length - i > 3)
+					return Double.NaN;
+				int e = 0;
+				for(; i < length; i++){
+					final int d = chars[i] - '0';
+					if(d < 0 || d > 9)
+						return Double.NaN;
+					e = e*10 + d;
+				}
+				exponent += negativeExponent ? -e : e;
+			}
+			if(digits > 1L << 53 || exponent < -22 || exponent > 22)
+				return Double.NaN;
+			final double value = exponent < 0 ? digits/POWERS_OF_TEN[-exponent] : digits*POWERS_OF_TEN[exponent];
+			return negative ? -value : value;
+		}
+
+		int nextInt(){
+			final int length = nextField();
+			int i = 0;
+			boolean negative = false;
+			if(chars[0] == '-' || chars[0] == '+'){
+				negative = chars[0] == '-';
+				i++;
+			}
+			if(i == length || length - i > 9)
+				return Integer.parseInt(new String(chars, 0, length));
+			int value = 0;
+			for(; i < length; i++){
+				final int d = chars[i] - '0';
+				if(d < 0 || d > 9)
+					throw new NumberFormatException("Not an integer: " + new String(chars, 0, length));
+				value = value*10 + d;
+			}
+			return negative ? -value : value;
+		}
+	}
+
+	/**
+	 * Creates a view onto every object read, once the store holding them has been put in place.
+	 * @param particles the store holding the objects read, such as one they have been moved to through {@code ParticleStore.moveFrom()}
+	 * @return the views, in the same order as in the store
+	 */
+	public ArrayList<Thing> toThings(ParticleStore particles){
+		return Snapshot.toThings(particles, fills);
+	}
+
+	/**
+	 * @return the tick delay the simulation was saved with
+	 */
+	public int getTickDelay(){
+		return tickDelay;
+	}
+
+	/**
+	 * @return the store holding the objects read
+	 */
+	public ParticleStore getParticles(){
+		return particles;
+	}
+
+}
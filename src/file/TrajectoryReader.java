@@ -0,0 +1,320 @@
+package file;
+
+import objects.ParticleStore;
+import objects.Thing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the frames of a recording made by a {@code TrajectoryRecorder}, in any order.
+ * <p>
+ * Opening a recording only reads its header and its index of chunks, so it takes the same time however long the recording is.
+ * Every chunk is a keyframe, so reading the frame at any tick takes a search through the index for its chunk,
+ * which is then memory-mapped and decompressed by itself; the last chunk decompressed is kept, so frames read in order only decompress each chunk once.
+ * If the recording was cut short and has no index, or its index is not in order, the index is rebuilt by following the headers of the chunks, without decompressing them,
+ * up to the first header that could not have been written by the recorder.
+ * @author Wei Liang
+ */
+public final class TrajectoryReader {
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int count, stride, maxFrames;
+	private final double timeStep, width, height;
+	private final int[] size, mass, fills;
+
+	// the first tick, offset and number of frames of every chunk, in order; the number of frames is read from the header of the chunk when first needed
+	private final long[] chunkTicks, chunkOffsets;
+	private final int[] chunkFrames;
+
+	// the last chunk decompressed
+	private int decoded = -1;
+	private byte[] compressed = new byte[0], shuffled = new byte[0];
+	private ByteBuffer frames = ByteBuffer.allocate(0);
+	private final Inflater inflater = new Inflater();
+
+	/**
+	 * Opens a recording.
+	 * @param file the recording
+	 * @throws IOException the file could not be read, or is not a recording of this version
+	 */
+	public TrajectoryReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		try{
+			final long length = channel.size();
+			if(length < TrajectoryRecorder.HEADER_BYTES)
+				throw new IOException("Not a recording: " + file);
+			final ByteBuffer header = map(0, TrajectoryRecorder.HEADER_BYTES);
+			if(header.getInt() != TrajectoryRecorder.MAGIC)
+				throw new IOException("Not a recording: " + file);
+			final int version = header.getInt();
+			if(version != TrajectoryRecorder.VERSION)
+				throw new IOException("Unsupported recording version " + version + ": " + file);
+			count = header.getInt();
+			stride = header.getInt();
+			timeStep = header.getDouble();
+			width = header.getDouble();
+			height = header.getDouble();
+			final long start = TrajectoryRecorder.HEADER_BYTES + 12L*count;
+			if(count < 0 || stride <= 0 || length < start)
+				throw new IOException("Truncated recording: " + file);
+			final IntBuffer columns = map(TrajectoryRecorder.HEADER_BYTES, 12L*count).asIntBuffer();
+			size = new int[count];
+			mass = new int[count];
+			fills = new int[count];
+			columns.get(size).get(mass).get(fills);
+			// the recorder fills each chunk in a single array, so no chunk can hold more frames than fit in one
+			maxFrames = count == 0 ? Integer.MAX_VALUE : (int) (Integer.MAX_VALUE/(32L*count));
+
+			long[] ticks = null, offsets = null;
+			int[] frames = null;
+			int chunks = 0;
+			if(length >= start + TrajectoryRecorder.TRAILER_BYTES){
+				final ByteBuffer trailer = map(length - TrajectoryRecorder.TRAILER_BYTES, TrajectoryRecorder.TRAILER_BYTES);
+				final long indexOffset = trailer.getLong();
+				chunks = trailer.getInt();
+				if(trailer.getInt() == TrajectoryRecorder.INDEX_MAGIC && chunks >= 0 && indexOffset + 16L*chunks + TrajectoryRecorder.TRAILER_BYTES == length){
+					ticks = new long[chunks];
+					offsets = new long[chunks];
+					frames = new int[chunks];
+					Arrays.fill(frames, -1);
+					final ByteBuffer index = map(indexOffset, 16L*chunks);
+					for(int c = 0; c < chunks; c++){
+						ticks[c] = index.getLong();
+						offsets[c] = index.getLong();
+						// the chunks are written in order, each on a multiple of the stride, between the columns and the index
+						final long previousTick = c == 0 ? -1 : ticks[c-1], previousOffset = c == 0 ? start - 1 : offsets[c-1];
+						if(ticks[c] <= previousTick || ticks[c] % stride != 0
+								|| offsets[c] <= previousOffset || offsets[c] + TrajectoryRecorder.CHUNK_HEADER_BYTES > indexOffset){
+							ticks = null;	// rebuild the index from the chunk headers instead
+							break;
+						}
+					}
+				}
+			}
+			if(ticks == null){
+				// no index, so follow the chunk headers up to the last complete chunk
+				ticks = new long[16];
+				offsets = new long[16];
+				frames = new int[16];
+				chunks = 0;
+				long offset = start, end = 0;	// the tick after the last frame of the previous chunk
+				while(offset + TrajectoryRecorder.CHUNK_HEADER_BYTES <= length){
+					final ByteBuffer chunkHeader = map(offset, TrajectoryRecorder.CHUNK_HEADER_BYTES);
+					final long tick = chunkHeader.getLong();
+					final int n = chunkHeader.getInt(), compressedLength = chunkHeader.getInt();
+					final long next = offset + TrajectoryRecorder.CHUNK_HEADER_BYTES + compressedLength;
+					// frames may have been dropped between chunks, but never within one, and every frame is on a multiple of the stride
+					if(n <= 0 || n > maxFrames || compressedLength <= 0 || next > length || tick < end || tick % stride != 0)
+						break;
+					end = tick + (long) n*stride;
+					if(chunks == ticks.length){
+						ticks = Arrays.copyOf(ticks, chunks*2);
+						offsets = Arrays.copyOf(offsets, chunks*2);
+						frames = Arrays.copyOf(frames, chunks*2);
+					}
+					frames[chunks] = n;
+					ticks[chunks] = tick;
+					offsets[chunks++] = offset;
+					offset = next;
+				}
+			}
+			chunkTicks = Arrays.copyOf(ticks, chunks);
+			chunkOffsets = Arrays.copyOf(offsets, chunks);
+			chunkFrames = Arrays.copyOf(frames, chunks);
+		}catch(IOException e){
+			this.file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the number of frames in a chunk
+	 * @throws IOException the header of the chunk could not be read, or gives a number of frames the recorder could not have written
+	 */
+	private int getFrames(int c) throws IOException {
+		if(chunkFrames[c] < 0){
+			final int n = map(chunkOffsets[c] + 8, 4).getInt();
+			if(n <= 0 || n > maxFrames)
+				throw new IOException("Corrupt chunk at " + chunkOffsets[c]);
+			chunkFrames[c] = n;
+		}
+		return chunkFrames[c];
+	}
+
+	private MappedByteBuffer map(long offset, long length) throws IOException {
+		final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	/**
+	 * Makes a store hold the objects of the recording, with the sizes and masses they were recorded with, ready for {@code readFrame()}.
+	 * @param into the store, whose previous contents are discarded; any {@code Thing} that was a view onto it should be discarded too
+	 */
+	public void prepare(ParticleStore into){
+		into.setCount(count);
+		System.arraycopy(size, 0, into.size, 0, count);
+		System.arraycopy(mass, 0, into.mass, 0, count);
+	}
+
+	/**
+	 * Creates a view onto every object in a store prepared through {@code prepare()}, with the fill colors they were recorded with.
+	 * @param particles the store
+	 * @return the views, in the same order as in the store
+	 */
+	public ArrayList<Thing> toThings(ParticleStore particles){
+		return Snapshot.toThings(particles, fills);
+	}
+
+	/**
+	 * Reads the positions and velocities of every object at a tick into a store prepared through {@code prepare()}.
+	 * If no frame was recorded at that tick, the last frame before it is read instead, or the first frame if there is none before it.
+	 * @param tick the tick, counted from the start of the recording
+	 * @param into the store
+	 * @return the tick of the frame that was read
+	 * @throws IOException the frame could not be read or decompressed
+	 * @throws IllegalStateException the recording has no frames
+	 */
+	public synchronized long readFrame(long tick, ParticleStore into) throws IOException {
+		if(chunkTicks.length == 0)
+			throw new IllegalStateException("The recording has no frames!");
+		int c = Arrays.binarySearch(chunkTicks, tick);
+		if(c < 0)
+			c = Math.max(-c - 2, 0);
+		final int frame = (int) Math.max(0, Math.min((tick - chunkTicks[c])/stride, getFrames(c) - 1));
+		decode(c);
+		final int columnBytes = 8*count;
+		int position = 4*columnBytes*frame;
+		for(double[] column: new double[][]{into.x, into.y, into.vx, into.vy}){
+			frames.position(position);
+			frames.asDoubleBuffer().get(column, 0, count);
+			position += columnBytes;
+		}
+		return chunkTicks[c] + (long) frame*stride;
+	}
+
+	/**
+	 * Decompresses a chunk into {@code frames}, unless it was the last one decompressed.
+	 */
+	private void decode(int c) throws IOException {
+		if(c == decoded)
+			return;
+		decoded = -1;
+		final ByteBuffer chunk = map(chunkOffsets[c], TrajectoryRecorder.CHUNK_HEADER_BYTES);
+		chunk.position(12);
+		final int length = chunk.getInt();
+		final long total = 32L*count*getFrames(c);
+		if(length <= 0 || total > Integer.MAX_VALUE || chunkOffsets[c] + TrajectoryRecorder.CHUNK_HEADER_BYTES + length > channel.size())
+			throw new IOException("Corrupt chunk at " + chunkOffsets[c]);
+		final int bytes = (int) total;
+		if(compressed.length < length)
+			compressed = new byte[length];
+		map(chunkOffsets[c] + TrajectoryRecorder.CHUNK_HEADER_BYTES, length).get(compressed, 0, length);
+		if(shuffled.length < bytes)
+			shuffled = new byte[bytes];
+		if(frames.capacity() < bytes)
+			frames = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		inflater.reset();
+		inflater.setInput(compressed, 0, length);
+		try{
+			int read = 0;
+			while(read < bytes && !inflater.finished()){
+				final int n = inflater.inflate(shuffled, read, bytes - read);
+				if(n == 0 && inflater.needsInput())
+					break;
+				read += n;
+			}
+			if(read != bytes)
+				throw new IOException("Corrupt chunk at " + chunkOffsets[c]);
+		}catch(DataFormatException e){
+			throw new IOException("Corrupt chunk at " + chunkOffsets[c], e);
+		}
+		unshuffle(shuffled, frames.array(), bytes/8);
+		decoded = c;
+	}
+
+	/**
+	 * Reverses {@code TrajectoryRecorder.shuffle()}.
+	 */
+	static void unshuffle(byte[] from, byte[] to, int doubles){
+		for(int k = 0; k < 8; k++){
+			final int plane = k*doubles;
+			for(int i = 0; i < doubles; i++)
+				to[8*i + k] = from[plane + i];
+		}
+	}
+
+	/**
+	 * @return the number of objects recorded
+	 */
+	public int getCount(){
+		return count;
+	}
+
+	/**
+	 * @return the number of ticks between two recorded frames
+	 */
+	public int getStride(){
+		return stride;
+	}
+
+	/**
+	 * @return the length of time each tick advanced the recorded world by
+	 */
+	public double getTimeStep(){
+		return timeStep;
+	}
+
+	/**
+	 * @return the width of the field when the recording started
+	 */
+	public double getWidth(){
+		return width;
+	}
+
+	/**
+	 * @return the height of the field when the recording started
+	 */
+	public double getHeight(){
+		return height;
+	}
+
+	/**
+	 * @return the number of chunks, each of which is a keyframe
+	 */
+	public int getChunks(){
+		return chunkTicks.length;
+	}
+
+	/**
+	 * @return the tick of the last recorded frame, or -1 if the recording has no frames
+	 * @throws IOException the header of the last chunk could not be read
+	 */
+	public synchronized long getLastTick() throws IOException {
+		final int c = chunkTicks.length - 1;
+		return c < 0 ? -1 : chunkTicks[c] + (long) (getFrames(c) - 1)*stride;
+	}
+
+	/**
+	 * Closes the recording. No more frames can be read afterwards.
+	 * @throws IOException the file could not be closed
+	 */
+	public synchronized void close() throws IOException {
+		inflater.end();
+		file.close();
+	}
+
+}
@@ -0,0 +1,350 @@
+package file;
+
+import objects.ParticleStore;
+import objects.Thing;
+import physics.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Records the positions and velocities of every object in a {@code World}, every few ticks, into a single file, without stalling the simulation on the disk.
+ * <p>
+ * The state is copied, at the end of a recorded tick and on the thread that stepped the world, into a buffer taken from a fixed pool;
+ * once a buffer holds a whole chunk of frames, a background thread compresses it and appends it to the file, then returns it to the pool.
+ * Memory is therefore bounded by the size of the pool. If the disk cannot keep up and the pool runs out, the {@code Policy} decides
+ * whether the simulation waits for a buffer or the frames are dropped until one is returned.
+ * <p>
+ * A recording is laid out as follows, all in little-endian byte order:
+ * <pre>
+ * header:  int magic ("CTRJ"), int version, int number of objects n, int stride, double time step, double width, double height
+ *          int size[n], int mass[n], int fill[n]
+ * chunks:  long first tick, int frames, int compressed length, then the frames compressed together by a {@code Deflater},
+ *          each frame being double x[n], y[n], vx[n], vy[n], with the bytes shuffled before compression
+ *          so that the first byte of every double in the chunk comes first, then the second byte of every double, and so on
+ * index:   long first tick, long offset, for every chunk
+ * trailer: long offset of the index, int number of chunks, int magic ("CIDX")
+ * </pre>
+ * Shuffling brings the sign and exponent bytes of similar values together, which compresses far better than the low bytes,
+ * and the low bytes are left to Huffman coding alone, since searching them for repeats is slow and rarely finds any.
+ * The frames of a chunk are always {@code stride} ticks apart, and every chunk can be decompressed by itself, so each one is a keyframe.
+ * The index and the trailer are only written once the recording is stopped; if it was cut short, the chunks can still be found by following their headers from the end of the header.
+ * Fill colors are packed as in a {@code Snapshot}.
+ * @author Wei Liang
+ */
+public final class TrajectoryRecorder implements World.Listener {
+
+	/**
+	 * What to do with a frame when every buffer in the pool is waiting to be written.
+	 */
+	public enum Policy {
+		/**
+		 * The simulation waits until a buffer is returned to the pool, so that no frame is lost.
+		 */
+		BLOCK,
+		/**
+		 * The frame is dropped, and so are the following ones until a buffer is returned to the pool, so that the simulation never waits.
+		 */
+		DROP
+	}
+
+	static final int MAGIC = 0x4A525443, INDEX_MAGIC = 0x58444943;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 40, CHUNK_HEADER_BYTES = 16, TRAILER_BYTES = 16;
+
+	/**
+	 * The size aimed for by the uncompressed frames of a chunk, when the number of frames per chunk is not given.
+	 */
+	private static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+	private static final int DEFAULT_BUFFERED_CHUNKS = 4;
+
+	private final World world;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int count, stride, chunkFrames;
+	private final Policy policy;
+	private final ArrayBlockingQueue<Chunk> free, full;
+	private final Thread writer;
+	private static final Chunk END = new Chunk(0);
+
+	// only used by the thread stepping the world
+	private Chunk current;
+	private long tick;
+
+	// only used by the writer
+	private long[] index = new long[32];
+	private int chunks;
+
+	private volatile long recordedFrames, droppedFrames;
+	private volatile IOException error;
+	private boolean started, stopped;
+
+	/**
+	 * Frames waiting to be written, or a buffer for them in the pool.
+	 */
+	private static final class Chunk {
+		final ByteBuffer raw;
+		long firstTick;
+		int frames;
+
+		Chunk(int capacity){
+			raw = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	/**
+	 * Creates a recorder that drops frames rather than stall the simulation, with chunks of about 4 MB before compression.
+	 * @see #TrajectoryRecorder(File, World, List, int, int, int, Policy)
+	 */
+	public TrajectoryRecorder(File file, World world, List<? extends Thing> objects, int stride) throws IOException {
+		this(file, world, objects, stride, Math.max(1, DEFAULT_CHUNK_BYTES/(32*Math.max(world.getParticles().count(), 1))), DEFAULT_BUFFERED_CHUNKS, Policy.DROP);
+	}
+
+	/**
+	 * Creates a recorder, and writes the header of the recording, which holds everything about the objects that does not change.
+	 * Nothing else is recorded until {@code start()} is called.
+	 * @param file the file to record into, which is replaced if it exists
+	 * @param world the world to record, whose number of objects must not change while it is being recorded
+	 * @param objects the views onto the objects of the world, in the same order as in its store, which are only used for their fill colors
+	 * @param stride the number of ticks between two recorded frames
+	 * @param chunkFrames the number of frames compressed together
+	 * @param bufferedChunks the number of chunks in the pool, which bounds the memory used to {@code bufferedChunks*chunkFrames*32} bytes per object
+	 * @param policy what to do when the pool runs out
+	 * @throws IOException the file could not be written
+	 * @throws IllegalArgumentException there is not one view per object, or the stride or either size is not positive
+	 */
+	public TrajectoryRecorder(File file, World world, List<? extends Thing> objects, int stride, int chunkFrames, int bufferedChunks, Policy policy) throws IOException {
+		final ParticleStore particles = world.getParticles();
+		this.count = particles.count();
+		if(objects.size() != count)
+			throw new IllegalArgumentException("There must be one view per object!");
+		if(stride <= 0 || chunkFrames <= 0 || bufferedChunks <= 0)
+			throw new IllegalArgumentException("The stride and the sizes of the pool must be positive!");
+		this.world = world;
+		this.stride = stride;
+		this.chunkFrames = chunkFrames;
+		this.policy = policy;
+		this.free = new ArrayBlockingQueue<>(bufferedChunks);
+		this.full = new ArrayBlockingQueue<>(bufferedChunks + 1);
+		for(int i = 0; i < bufferedChunks; i++)
+			free.add(new Chunk(32*count*chunkFrames));
+		this.file = new RandomAccessFile(file, "rw");
+		this.channel = this.file.getChannel();
+		try{
+			this.file.setLength(0);
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + 12*count).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(stride);
+			header.putDouble(world.getTimeStep()).putDouble(world.getWidth()).putDouble(world.getHeight());
+			header.asIntBuffer().put(particles.size, 0, count);
+			header.position(header.position() + 4*count);
+			header.asIntBuffer().put(particles.mass, 0, count);
+			header.position(header.position() + 4*count);
+			for(Thing t: objects)
+				header.putInt(Snapshot.pack(t.getFill()));
+			header.flip();
+			writeFully(header);
+		}catch(IOException e){
+			this.file.close();
+			throw e;
+		}
+		this.writer = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				drain();
+			}
+		}, "trajectory-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Records the current state of the world as tick 0, then records every {@code stride} ticks from then on.
+	 * The world should not be stepped while this is called.
+	 */
+	public synchronized void start(){
+		if(started)
+			throw new IllegalStateException("Recording has already started!");
+		started = true;
+		record();
+		world.addListener(this);
+	}
+
+	@Override
+	public synchronized void ticked(World world, int objectCollisions, int wallCollisions){
+		if(stopped)
+			return;
+		if(++tick % stride == 0)
+			record();
+	}
+
+	/**
+	 * Copies the state of every object into the current chunk, starting a new one if needed, and passes the chunk on to the writer once it is full.
+	 */
+	private void record(){
+		final ParticleStore particles = world.getParticles();
+		if(particles.count() != count || error != null){
+			droppedFrames++;
+			return;
+		}
+		if(current == null){
+			if(policy == Policy.BLOCK){
+				try{
+					current = free.take();
+				}catch(InterruptedException e){
+					// the thread stepping the world is being stopped; let it see the interrupt
+					Thread.currentThread().interrupt();
+				}
+			}else
+				current = free.poll();
+			if(current == null){
+				droppedFrames++;
+				return;
+			}
+			current.raw.clear();
+			current.firstTick = tick;
+			current.frames = 0;
+		}
+		final ByteBuffer raw = current.raw;
+		for(double[] column: new double[][]{particles.x, particles.y, particles.vx, particles.vy}){
+			raw.asDoubleBuffer().put(column, 0, count);
+			raw.position(raw.position() + 8*count);
+		}
+		recordedFrames++;
+		if(++current.frames == chunkFrames){
+			full.add(current);
+			current = null;
+		}
+	}
+
+	/**
+	 * Compresses and writes chunks as they are filled, until the recording is stopped.
+	 */
+	private void drain(){
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		deflater.setStrategy(Deflater.HUFFMAN_ONLY);
+		byte[] shuffled = new byte[0], compressed = new byte[1 << 16];
+		final ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		try{
+			while(true){
+				final Chunk c = full.take();
+				if(c == END)
+					break;
+				try{
+					if(error == null){
+						final int bytes = c.raw.position();
+						if(shuffled.length < bytes)
+							shuffled = new byte[bytes];
+						shuffle(c.raw.array(), shuffled, bytes/8);
+						deflater.reset();
+						deflater.setInput(shuffled, 0, bytes);
+						deflater.finish();
+						int length = 0;
+						while(!deflater.finished()){
+							if(length == compressed.length)
+								compressed = Arrays.copyOf(compressed, compressed.length*2);
+							length += deflater.deflate(compressed, length, compressed.length - length);
+						}
+						if(2*chunks == index.length)
+							index = Arrays.copyOf(index, index.length*2);
+						index[2*chunks] = c.firstTick;
+						index[2*chunks+1] = channel.position();
+						chunkHeader.clear();
+						chunkHeader.putLong(c.firstTick).putInt(c.frames).putInt(length).flip();
+						writeFully(chunkHeader);
+						writeFully(ByteBuffer.wrap(compressed, 0, length));
+						chunks++;
+					}
+				}catch(IOException e){
+					error = e;
+				}finally{
+					free.add(c);
+				}
+			}
+		}catch(InterruptedException e){
+		}finally{
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Moves byte k of every double to plane k, so that byte k of double i ends up at {@code k*doubles + i}.
+	 */
+	static void shuffle(byte[] from, byte[] to, int doubles){
+		for(int k = 0; k < 8; k++){
+			final int plane = k*doubles;
+			for(int i = 0; i < doubles; i++)
+				to[plane + i] = from[8*i + k];
+		}
+	}
+
+	private void writeFully(ByteBuffer b) throws IOException {
+		while(b.hasRemaining())
+			channel.write(b);
+	}
+
+	/**
+	 * Stops recording, waits for every recorded frame to be written, then writes the index and closes the file.
+	 * This may be called from any thread, even while the world is being stepped. Nothing is done if the recording has already stopped.
+	 * @throws IOException the recording could not be written, in which case it holds the frames up to the first failure and has no index
+	 */
+	public synchronized void stop() throws IOException {
+		if(stopped)
+			return;
+		stopped = true;
+		world.removeListener(this);
+		if(current != null){
+			full.add(current);
+			current = null;
+		}
+		full.add(END);
+		try{
+			writer.join();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		try{
+			if(error == null && !writer.isAlive()){
+				final ByteBuffer tail = ByteBuffer.allocate(16*chunks + TRAILER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				final long indexOffset = channel.position();
+				tail.asLongBuffer().put(index, 0, 2*chunks);
+				tail.position(16*chunks);
+				tail.putLong(indexOffset).putInt(chunks).putInt(INDEX_MAGIC).flip();
+				writeFully(tail);
+			}
+		}finally{
+			file.close();
+		}
+		if(error != null)
+			throw error;
+	}
+
+	/**
+	 * @return the number of frames copied so far, whether or not they have been written yet
+	 */
+	public long getRecordedFrames(){
+		return recordedFrames;
+	}
+
+	/**
+	 * @return the number of frames dropped so far, because the pool ran out, the number of objects changed, or the file could not be written
+	 */
+	public long getDroppedFrames(){
+		return droppedFrames;
+	}
+
+	/**
+	 * @return whether the recording has been stopped
+	 */
+	public synchronized boolean isStopped(){
+		return stopped;
+	}
+
+}
@@ -0,0 +1,286 @@
+package launcher;
+
+import objects.ParticleStore;
+import objects.Thing;
+import physics.Reduction;
+import physics.WallImpulse;
+import physics.World;
+import status.TimeSeriesSink;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Runs the setups of the launchers without a GUI, as fast as they can be computed, and writes what the status displays would show as CSV.
+ * No JavaFX toolkit is started, so this can be run on a server; only the JavaFX classes for colors need to be on the class path.
+ * <p>
+ * Usage: {@code java launcher.BatchRunner [options] scenario...}, where each scenario is named as in {@code Scenario.forName()}, and the options are
+ * <pre>
+ * --ticks n            the number of ticks in each run (default 10000)
+ * --time t             the length of simulated time in each run, instead of a number of ticks
+ * --sample n           the number of ticks between two rows (default 100)
+ * --runs n             the number of runs of each scenario, each with the next seed (default 1)
+ * --seed n             the seed of the first run (default 0)
+ * --time-step t        the length of time of each tick (default 1)
+ * --parallelism n      the number of threads each tick is spread over (default 1)
+ * --width w, --height h the size of the field, instead of that of the scenario
+ * --event-driven, --double-buffered, --continuous
+ *                      the same as the settings of the same names in {@code Simulator}
+ * --out file           the file to write, instead of the standard output
+ * --series dir         a directory to also keep the same measurements of every run in, sampled every {@code sample} ticks,
+ *                      as the binary format of {@code TimeSeriesSink} in a file named after the scenario and the run
+ * </pre>
+ * Each row holds the totals since the start of the run, the rates over the last {@code sample} ticks, and the totals over the objects at that tick;
+ * rates and pressures are per unit of simulated time. The speed of each run, in ticks per second of real time, is also written to the standard error.
+ * @author Wei Liang
+ */
+public final class BatchRunner {
+
+	/**
+	 * The first line of the output.
+	 */
+	public static final String HEADER = "scenario,run,seed,tick,time,objects,objectCollisions,wallCollisions,objectCollisionRate,wallCollisionRate,"
+			+ "averageSpeed,kineticEnergy,momentum,temperature,pressure,ticksPerSecond";
+
+	private long ticks = 10000;
+	private double time = -1;
+	private int sample = 100, runs = 1, parallelism = 1;
+	private long seed = 0;
+	private double timeStep = 1, width = -1, height = -1;
+	private boolean eventDriven, doubleBuffered, continuous;
+	private String out, series;
+	private final ArrayList<Scenario> scenarios = new ArrayList<>();
+
+	private BatchRunner(){}
+
+	public static void main(String[] args) throws IOException {
+		final BatchRunner runner = new BatchRunner();
+		try{
+			runner.parse(args);
+		}catch(IllegalArgumentException e){
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java launcher.BatchRunner [--ticks n | --time t] [--sample n] [--runs n] [--seed n] [--time-step t] [--parallelism n]"
+					+ " [--width w] [--height h] [--event-driven] [--double-buffered] [--continuous] [--out file] [--series dir] scenario...");
+			System.exit(1);
+		}
+		final PrintWriter pw = new PrintWriter(new BufferedWriter(runner.out == null ? new OutputStreamWriter(System.out) : new FileWriter(runner.out)));
+		try{
+			pw.println(HEADER);
+			for(Scenario s: runner.scenarios)
+				for(int run = 0; run < runner.runs; run++)
+					runner.run(s, run, pw);
+		}finally{
+			pw.close();
+		}
+	}
+
+	private void parse(String[] args){
+		for(int a = 0; a < args.length; a++){
+			final String arg = args[a];
+			if(!arg.startsWith("--")){
+				scenarios.add(Scenario.forName(arg));
+				continue;
+			}
+			if(arg.equals("--event-driven"))
+				eventDriven = true;
+			else if(arg.equals("--double-buffered"))
+				doubleBuffered = true;
+			else if(arg.equals("--continuous"))
+				continuous = true;
+			else{
+				if(++a == args.length)
+					throw new IllegalArgumentException("No value given for " + arg);
+				final String value = args[a];
+				try{
+					switch(arg){
+					case "--ticks": ticks = Long.parseLong(value); break;
+					case "--time": time = Double.parseDouble(value); break;
+					case "--sample": sample = Integer.parseInt(value); break;
+					case "--runs": runs = Integer.parseInt(value); break;
+					case "--seed": seed = Long.parseLong(value); break;
+					case "--time-step": timeStep = Double.parseDouble(value); break;
+					case "--parallelism": parallelism = Integer.parseInt(value); break;
+					case "--width": width = Double.parseDouble(value); break;
+					case "--height": height = Double.parseDouble(value); break;
+					case "--out": out = value; break;
+					case "--series": series = value; break;
+					default: throw new IllegalArgumentException("Unknown option " + arg);
+					}
+				}catch(NumberFormatException e){
+					throw new IllegalArgumentException("Not a number: " + value);
+				}
+			}
+		}
+		if(scenarios.isEmpty())
+			throw new IllegalArgumentException("No scenario given");
+		if(sample <= 0 || runs <= 0 || parallelism <= 0 || !(timeStep > 0))
+			throw new IllegalArgumentException("The sample, runs, parallelism and time step must be positive");
+		if(time >= 0)
+			ticks = (long) Math.ceil(time/timeStep);
+	}
+
+	/**
+	 * Creates a world holding the objects of a scenario, set up as the launcher would set up the simulator.
+	 * @param s the scenario
+	 * @param r the source of randomness for the objects
+	 * @return the world
+	 */
+	private World createWorld(Scenario s, Random r){
+		final ArrayList<? extends Thing> objects = s.createObjects(r);
+		final ParticleStore particles = new ParticleStore(objects.size());
+		for(Thing t: objects)
+			particles.add(t);
+		final World world = new World(particles, width > 0 ? width : s.getWidth(), height > 0 ? height : s.getHeight());
+		world.setBroadPhase(s.createBroadPhase());
+		world.setParallelism(parallelism);
+		world.setEventDriven(eventDriven);
+		world.setDoubleBuffered(doubleBuffered);
+		world.setTimeStep(timeStep);
+		world.setContinuous(continuous);
+		return world;
+	}
+
+	/**
+	 * Creates a sink that keeps the measurements of a run every {@code sample} ticks, from the totals the world publishes.
+	 * @param world the world of the run
+	 * @return the sink
+	 */
+	private TimeSeriesSink createSink(final World world){
+		final TimeSeriesSink sink = new TimeSeriesSink(world, sample);
+		sink.newSeries("objectCollisions", new TimeSeriesSink.Source(){
+			@Override
+			public double sample(World world){
+				return world.getObjectCollisions();
+			}
+		});
+		sink.newSeries("wallCollisions", new TimeSeriesSink.Source(){
+			@Override
+			public double sample(World world){
+				return world.getWallCollisions();
+			}
+		});
+		sink.newSeries("averageSpeed", new TimeSeriesSink.Source(){
+			@Override
+			public double sample(World world){
+				return world.getReduction().getAverageSpeed();
+			}
+		});
+		sink.newSeries("kineticEnergy", new TimeSeriesSink.Source(){
+			@Override
+			public double sample(World world){
+				return world.getReduction().getKineticEnergy();
+			}
+		});
+		sink.newSeries("momentum", new TimeSeriesSink.Source(){
+			@Override
+			public double sample(World world){
+				return world.getReduction().getMomentumVector().getMagnitude();
+			}
+		});
+		sink.newSeries("temperature", new TimeSeriesSink.Source(){
+			@Override
+			public double sample(World world){
+				return world.getReduction().getTemperature();
+			}
+		});
+		sink.newSeries("pressure", new TimeSeriesSink.Source(){
+			private WallImpulse last = world.getWallImpulse();
+			@Override
+			public double sample(World world){
+				final WallImpulse impulse = world.getWallImpulse();
+				final double elapsed = impulse.getTime() - last.getTime(), perimeter = 2*(world.getWidth() + world.getHeight());
+				final double pressure = elapsed > 0 && perimeter > 0 ? (impulse.getTotal() - last.getTotal())/elapsed/perimeter : 0;
+				last = impulse;
+				return pressure;
+			}
+		});
+		return sink;
+	}
+
+	/**
+	 * Runs a scenario once, writing a row every {@code sample} ticks, including the first and the last,
+	 * and keeping the same measurements in a time series if asked to.
+	 */
+	private void run(Scenario s, int run, PrintWriter pw) throws IOException {
+		final long runSeed = seed + run;
+		final World world = createWorld(s, new Random(runSeed));
+		final TimeSeriesSink sink = series == null ? null : createSink(world);
+		try{
+			final String prefix = s.name() + "," + run + "," + runSeed + ",";
+			WallImpulse lastImpulse = world.getWallImpulse();
+			long lastObjects = 0, lastWalls = 0;
+			long lastRow = System.nanoTime();
+			final long start = lastRow;
+			// the world only publishes its totals once a tick is complete, so those of tick 0 are gathered here
+			write(pw, prefix, world, 0, 0, 0, 0, 0, 0, Reduction.of(world.getParticles()), 0);
+			for(long tick = 1; tick <= ticks; tick++){
+				world.step();
+				if(tick % sample != 0 && tick != ticks)
+					continue;
+				final long now = System.nanoTime();
+				final WallImpulse impulse = world.getWallImpulse();
+				final double elapsed = impulse.getTime() - lastImpulse.getTime();
+				final double perimeter = 2*(world.getWidth() + world.getHeight());
+				final long objects = world.getObjectCollisions(), walls = world.getWallCollisions();
+				final long rowTicks = tick % sample == 0 ? sample : tick % sample;
+				write(pw, prefix, world, tick, objects, walls,
+						elapsed > 0 ? (objects - lastObjects)/elapsed : 0,
+						elapsed > 0 ? (walls - lastWalls)/elapsed : 0,
+						elapsed > 0 && perimeter > 0 ? (impulse.getTotal() - lastImpulse.getTotal())/elapsed/perimeter : 0,
+						world.getReduction(),
+						rowTicks*1e9/Math.max(now - lastRow, 1));
+				lastImpulse = impulse;
+				lastObjects = objects;
+				lastWalls = walls;
+				lastRow = now;
+			}
+			final double seconds = (System.nanoTime() - start)/1e9;
+			System.err.println(s.name() + " run " + run + ": " + ticks + " ticks of " + world.getParticles().count() + " objects in " + seconds + " s ("
+					+ (seconds > 0 ? ticks/seconds : 0) + " ticks/s)");
+		}finally{
+			world.shutdown();
+		}
+		if(sink != null){
+			sink.close();
+			new File(series).mkdirs();
+			sink.write(new File(series, s.name() + "-" + run + ".series"));
+		}
+	}
+
+	private static void write(PrintWriter pw, String prefix, World world, long tick, long objects, long walls,
+			double objectRate, double wallRate, double pressure, Reduction r, double ticksPerSecond){
+		pw.print(prefix);
+		pw.print(tick);
+		pw.print(',');
+		pw.print(world.getWallImpulse().getTime());
+		pw.print(',');
+		pw.print(r.getCount());
+		pw.print(',');
+		pw.print(objects);
+		pw.print(',');
+		pw.print(walls);
+		pw.print(',');
+		pw.print(objectRate);
+		pw.print(',');
+		pw.print(wallRate);
+		pw.print(',');
+		pw.print(r.getAverageSpeed());
+		pw.print(',');
+		pw.print(r.getKineticEnergy());
+		pw.print(',');
+		pw.print(r.getMomentumVector().getMagnitude());
+		pw.print(',');
+		pw.print(r.getTemperature());
+		pw.print(',');
+		pw.print(pressure);
+		pw.print(',');
+		pw.println(ticksPerSecond);
+	}
+
+}
@@ -0,0 +1,59 @@
+package launcher;
+
+import i18n.I18nUtils;
+import javafx.scene.paint.Color;
+import objects.Ball;
+import objects.GasParticle;
+import objects.Thing;
+import physics.PhysicsVector;
+import status.*;
+import ui.Simulator;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Simulates Brownian motion: a heavy ball, initially at rest, is jostled about by many light gas molecules.
+ * Since the objects have very different sizes, collisions are found through a {@code HierarchicalGrid}.
+ * @author Wei Liang
+ */
+public class BrownianMotion {
+
+	public static void main(String[] args) {
+		Locale[] lang = {
+				Locale.ENGLISH
+		};
+		Scenario.BROWNIAN_MOTION.configureSimulator();
+
+		StatusElement.StatusElementInitializer initStatuses = new StatusElement.StatusElementInitializer(){
+			@Override
+			public ArrayList<StatusElement> getStatuses() {
+				ArrayList<StatusElement> statuses = new ArrayList<>();
+				statuses.add(new ObjectCollisionRateCounter(5));
+				statuses.add(new AverageSpeedTracker());
+				statuses.add(new SimulatorHeightTracker());
+				statuses.add(new SimulatorWidthTracker());
+				return statuses;
+			}
+		};
+
+		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), createObjects(new Random()), initStatuses);
+	}
+
+	/**
+	 * Creates the heavy ball in the middle, surrounded by gas molecules moving in random directions.
+	 * @param r The source of randomness for the directions.
+	 * @return The ball, followed by the gas molecules.
+	 */
+	public static ArrayList<Thing> createObjects(Random r){
+		ArrayList<Thing> objects = new ArrayList<>();
+		objects.add(new Ball(0, 0, 20, new PhysicsVector(0, 0), Color.RED));
+		for(int i = -15; i <= 15; i++)
+			for(int j = -15; j <= 15; j++)
+				if(Math.hypot(i, j)*GasParticle.SIZE*3 > Ball.SIZE + GasParticle.SIZE)
+					objects.add(new GasParticle(i*GasParticle.SIZE*3, j*GasParticle.SIZE*3, PhysicsVector.fromPolar(2, r.nextDouble()*2*Math.PI)));
+		return objects;
+	}
+
+}
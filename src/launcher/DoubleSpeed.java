@@ -22,16 +22,7 @@ public class DoubleSpeed {
 		Locale[] lang = {
 				Locale.ENGLISH
 		};
-		Simulator.fieldPrefWidth = Simulator.fieldPrefHeight = 500;
-		ArrayList<PhysicsVector> velocities = new ArrayList<>();
-		for(int i = -4; i <= 5; i++)
-			for(int j = -4; j <= 5; j++)
-				velocities.add(new PhysicsVector(i, j));
-		randomize(velocities);
-		ArrayList<GasParticle> gas = new ArrayList<>();
-		for(int i = -4; i <= 5; i++)
-			for(int j = -4; j <= 5; j++)
-				gas.add(new GasParticle(i*GasParticle.SIZE*3, j*GasParticle.SIZE*3, velocities.get((i+4)*10+(j+4))));
+		Scenario.DOUBLE_SPEED.configureSimulator();
 
 		StatusElement.StatusElementInitializer initStatuses = new StatusElement.StatusElementInitializer(){
 			@Override
@@ -39,20 +30,38 @@ public class DoubleSpeed {
 				ArrayList<StatusElement> statuses = new ArrayList<>();
 				statuses.add(new WallCollisionRateCounter(5));
 				statuses.add(new AverageSpeedTracker());
+				statuses.add(new SpeedHistogram(15, 500));
 				statuses.add(new SimulatorHeightTracker());
 				statuses.add(new SimulatorWidthTracker());
 				return statuses;
 			}
 		};
 
-		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), gas, initStatuses);
+		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), createObjects(new Random()), initStatuses);
+	}
+	
+	/**
+	 * Creates the gas molecules, with their velocities shuffled among them.
+	 * @param r The source of randomness for the shuffle.
+	 * @return The gas molecules.
+	 */
+	public static ArrayList<GasParticle> createObjects(Random r){
+		ArrayList<PhysicsVector> velocities = new ArrayList<>();
+		for(int i = -4; i <= 5; i++)
+			for(int j = -4; j <= 5; j++)
+				velocities.add(new PhysicsVector(i, j));
+		randomize(velocities, r);
+		ArrayList<GasParticle> gas = new ArrayList<>();
+		for(int i = -4; i <= 5; i++)
+			for(int j = -4; j <= 5; j++)
+				gas.add(new GasParticle(i*GasParticle.SIZE*3, j*GasParticle.SIZE*3, velocities.get((i+4)*10+(j+4))));
+		return gas;
 	}
 	
 	/**
 	 * Randomizes the speeds
 	 */
-	private static void randomize(ArrayList<PhysicsVector> data){
-		final Random r = new Random();
+	private static void randomize(ArrayList<PhysicsVector> data, Random r){
 		for(int i = 0; i < data.size()*10; i++){
 			data.add(data.remove(r.nextInt(data.size())));
 		}
@@ -0,0 +1,74 @@
+package launcher;
+
+import objects.GasParticle;
+import objects.ParticleStore;
+import objects.Thing;
+import physics.CollisionEngine;
+import physics.PhysicsVector;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Measures the time taken and the memory allocated per pair test by both narrow phases in {@code CollisionEngine}.
+ * No simulator is launched; the objects are tested against each other directly.
+ * The scalar narrow phase is expected to allocate 0 bytes per pair.
+ * @author Wei Liang
+ */
+public final class NarrowPhaseBenchmark {
+
+	private static final int OBJECTS = 1000, ROUNDS = 20;
+
+	public static void main(String[] args) {
+		final Random r = new Random(0);
+		final ArrayList<Thing> objects = new ArrayList<>();
+		final ParticleStore particles = new ParticleStore(OBJECTS);
+		for(int i = 0; i < OBJECTS; i++){
+			// dense enough that a good fraction of the pairs overlap
+			final Thing t = new GasParticle(r.nextInt(200), r.nextInt(200), PhysicsVector.fromPolar(1, r.nextDouble()*2*Math.PI));
+			particles.add(t);
+			objects.add(t);
+		}
+		final long pairs = (long) OBJECTS*(OBJECTS-1)/2*ROUNDS;
+
+		for(int warmup = 0; warmup < 5; warmup++){
+			scalar(particles);
+			vector(objects);
+		}
+		long bytes = allocatedBytes(), time = System.nanoTime();
+		scalar(particles);
+		time = System.nanoTime() - time;
+		bytes = allocatedBytes() - bytes;
+		System.out.println("scalar: " + (double) time/pairs + " ns, " + (double) bytes/pairs + " bytes per pair");
+
+		bytes = allocatedBytes();
+		time = System.nanoTime();
+		vector(objects);
+		time = System.nanoTime() - time;
+		bytes = allocatedBytes() - bytes;
+		System.out.println("vector: " + (double) time/pairs + " ns, " + (double) bytes/pairs + " bytes per pair");
+	}
+
+	private static void scalar(ParticleStore particles){
+		for(int round = 0; round < ROUNDS; round++)
+			for(int i = 0; i < particles.count(); i++)
+				for(int j = i+1; j < particles.count(); j++)
+					CollisionEngine.computePossibleCollision(particles, i, j);
+	}
+
+	private static void vector(ArrayList<Thing> objects){
+		for(int round = 0; round < ROUNDS; round++)
+			for(int i = 0; i < objects.size(); i++)
+				for(int j = i+1; j < objects.size(); j++)
+					CollisionEngine.computePossibleCollision(objects.get(i), objects.get(j));
+	}
+
+	/**
+	 * @return the total number of bytes allocated so far by the current thread
+	 */
+	private static long allocatedBytes(){
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
@@ -0,0 +1,356 @@
+package launcher;
+
+import objects.GasParticle;
+import objects.ParticleStore;
+import physics.Reduction;
+import physics.UniformGrid;
+import physics.WallImpulse;
+import physics.World;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the gas setup of the launchers over every combination of a range of parameters, each combination with several seeds,
+ * and writes the mean of each measurement over the seeds with its 95% confidence interval, as CSV.
+ * <p>
+ * The gas is set up as in {@code Normal}: the molecules are placed on a grid of 10 rows, one column after another,
+ * and given the velocities of a grid of the same shape, shuffled among them. The parameters are the number of molecules,
+ * a factor the velocities are scaled by, and the size of the field; {@code Normal} is 100 molecules at speed 1 in a field of 500 by 500.
+ * <p>
+ * Every run is independent, so the runs are spread over a {@code ForkJoinPool} of a fixed number of threads, which steal runs from each other as they finish;
+ * each run is stepped on a single thread. Each thread keeps one store and one grid and reuses them for every run it takes,
+ * so the molecules are written straight into the store rather than created as objects.
+ * <p>
+ * Usage: {@code java launcher.ParameterSweep [options]}, where each list of values is separated by commas,
+ * and each value is either a number or an inclusive range {@code from:to:step}:
+ * <pre>
+ * --molecules list     the numbers of molecules (default 100)
+ * --speed list         the factors the velocities are scaled by (default 1)
+ * --width list         the widths of the field (default 500)
+ * --height list        the heights of the field (default 500)
+ * --seeds n            the number of runs of each combination, each with the next seed (default 8)
+ * --first-seed n       the seed of the first run of each combination (default 0)
+ * --warmup n           the number of ticks before measuring, for the gas to settle (default 1000)
+ * --ticks n            the number of ticks measured (default 5000)
+ * --time-step t        the length of time of each tick (default 1)
+ * --threads n          the number of runs at once (default: the number of processors)
+ * --out file           the file to write the summary to, instead of the standard output
+ * --runs-out file      a file to write the measurements of every run to
+ * </pre>
+ * @author Wei Liang
+ */
+public final class ParameterSweep {
+
+	/**
+	 * The measurements taken in each run. Rates and pressures are per unit of simulated time, and averages are over every measured tick;
+	 * the compressibility is {@code PA/NT}, which is 1 for an ideal gas in two dimensions.
+	 */
+	public static final String[] METRICS = {"pressure", "temperature", "averageSpeed", "compressibility", "objectCollisionRate", "wallCollisionRate", "ticksPerSecond"};
+
+	private static final int PRESSURE = 0, TEMPERATURE = 1, AVERAGE_SPEED = 2, COMPRESSIBILITY = 3, OBJECT_RATE = 4, WALL_RATE = 5, TICK_RATE = 6;
+
+	/**
+	 * The number of molecules in each column, and the distance between two neighbouring molecules, as in the launchers.
+	 */
+	private static final int ROWS = 10, SPACING = GasParticle.SIZE*3;
+
+	/**
+	 * The 97.5th percentiles of Student's t distribution for 1 to 30 degrees of freedom, for two-sided 95% confidence intervals.
+	 */
+	private static final double[] T_975 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+			2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+			2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+	private double[] molecules = {100}, speeds = {1}, widths = {500}, heights = {500};
+	private int seeds = 8, threads = Runtime.getRuntime().availableProcessors();
+	private long firstSeed = 0;
+	private int warmup = 1000, ticks = 5000;
+	private double timeStep = 1;
+	private String out, runsOut;
+
+	// every combination of the parameters, in the order they are written
+	private final ArrayList<double[]> points = new ArrayList<>();
+	private double[][] results;
+
+	/**
+	 * The store and the grid a thread reuses for every run it takes.
+	 */
+	private static final class Workspace {
+		final ParticleStore particles = new ParticleStore(256);
+		final UniformGrid grid = new UniformGrid();
+		int[] order = new int[0];
+	}
+
+	private final ThreadLocal<Workspace> workspace = new ThreadLocal<Workspace>(){
+		@Override
+		protected Workspace initialValue(){
+			return new Workspace();
+		}
+	};
+
+	private ParameterSweep(){}
+
+	public static void main(String[] args) throws IOException {
+		final ParameterSweep sweep = new ParameterSweep();
+		try{
+			sweep.parse(args);
+		}catch(IllegalArgumentException e){
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java launcher.ParameterSweep [--molecules list] [--speed list] [--width list] [--height list] [--seeds n] [--first-seed n]"
+					+ " [--warmup n] [--ticks n] [--time-step t] [--threads n] [--out file] [--runs-out file]");
+			System.exit(1);
+		}
+		final long start = System.nanoTime();
+		sweep.run();
+		System.err.println(sweep.results.length + " runs of " + (sweep.warmup + sweep.ticks) + " ticks on " + sweep.threads + " threads in "
+				+ (System.nanoTime() - start)/1e9 + " s");
+		sweep.write();
+	}
+
+	private void parse(String[] args){
+		for(int a = 0; a < args.length; a++){
+			final String arg = args[a];
+			if(++a == args.length)
+				throw new IllegalArgumentException("No value given for " + arg);
+			final String value = args[a];
+			try{
+				switch(arg){
+				case "--molecules": molecules = parseValues(value); break;
+				case "--speed": speeds = parseValues(value); break;
+				case "--width": widths = parseValues(value); break;
+				case "--height": heights = parseValues(value); break;
+				case "--seeds": seeds = Integer.parseInt(value); break;
+				case "--first-seed": firstSeed = Long.parseLong(value); break;
+				case "--warmup": warmup = Integer.parseInt(value); break;
+				case "--ticks": ticks = Integer.parseInt(value); break;
+				case "--time-step": timeStep = Double.parseDouble(value); break;
+				case "--threads": threads = Integer.parseInt(value); break;
+				case "--out": out = value; break;
+				case "--runs-out": runsOut = value; break;
+				default: throw new IllegalArgumentException("Unknown option " + arg);
+				}
+			}catch(NumberFormatException e){
+				throw new IllegalArgumentException("Not a number: " + value);
+			}
+		}
+		if(seeds <= 0 || ticks <= 0 || warmup < 0 || threads <= 0 || !(timeStep > 0))
+			throw new IllegalArgumentException("The seeds, ticks, threads and time step must be positive");
+		for(double n: molecules)
+			for(double speed: speeds)
+				for(double width: widths)
+					for(double height: heights){
+						if(n < 1 || n != Math.floor(n))
+							throw new IllegalArgumentException("Not a number of molecules: " + n);
+						// the lattice of fill() reaches out columns/2 columns and ROWS/2 rows from the origin, plus the radius of a molecule
+						final int columns = (int) Math.ceil(n/ROWS);
+						if((columns/2)*SPACING + GasParticle.SIZE > width/2 || (ROWS/2)*SPACING + GasParticle.SIZE > height/2)
+							throw new IllegalArgumentException(n + " molecules do not fit in a field of " + width + " by " + height);
+						points.add(new double[]{n, speed, width, height});
+					}
+	}
+
+	/**
+	 * @param list values separated by commas, each either a number or an inclusive range {@code from:to:step}
+	 * @return the values
+	 */
+	private static double[] parseValues(String list){
+		final ArrayList<Double> values = new ArrayList<>();
+		for(String item: list.split(",")){
+			final String[] range = item.trim().split(":");
+			if(range.length == 1)
+				values.add(Double.parseDouble(range[0]));
+			else if(range.length == 3){
+				final double from = Double.parseDouble(range[0]), to = Double.parseDouble(range[1]), step = Double.parseDouble(range[2]);
+				if(!(step > 0))
+					throw new IllegalArgumentException("The step of a range must be positive: " + item);
+				// a little slack, so that a step which does not divide exactly still reaches the end
+				for(int k = 0; from + k*step <= to + step*1e-9; k++)
+					values.add(from + k*step);
+			}else
+				throw new IllegalArgumentException("Not a value or a range: " + item);
+		}
+		final double[] result = new double[values.size()];
+		for(int i = 0; i < result.length; i++)
+			result[i] = values.get(i);
+		return result;
+	}
+
+	/**
+	 * Runs every seed of every combination, on a pool of its own.
+	 */
+	private void run(){
+		results = new double[points.size()*seeds][];
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		try{
+			pool.invoke(new RunTask(0, results.length));
+		}finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Runs the runs in a range of indices, splitting the range in halves until each task holds a single run.
+	 */
+	private final class RunTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -2412935816004352160L;
+
+		private final int from, to;
+
+		RunTask(int from, int to){
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from > 1){
+				final int middle = (from + to) >>> 1;
+				invokeAll(new RunTask(from, middle), new RunTask(middle, to));
+			}else if(to > from)
+				results[from] = runOne(points.get(from/seeds), firstSeed + from%seeds);
+		}
+
+	}
+
+	/**
+	 * Sets up the gas of one combination in the store of the current thread, then steps it and takes its measurements.
+	 * @param point the number of molecules, speed factor, width and height
+	 * @param seed the seed of the shuffle of the velocities
+	 * @return the measurements, in the order of {@code METRICS}
+	 */
+	private double[] runOne(double[] point, long seed){
+		final Workspace w = workspace.get();
+		final int n = (int) point[0];
+		final double width = point[2], height = point[3];
+		fill(w, n, point[1], new Random(seed));
+		final World world = new World(w.particles, width, height);
+		world.setBroadPhase(w.grid);
+		world.setTimeStep(timeStep);
+		try{
+			world.step(warmup);
+			final WallImpulse startImpulse = world.getWallImpulse();
+			final long startObjects = world.getObjectCollisions(), startWalls = world.getWallCollisions(), startTime = System.nanoTime();
+			double temperature = 0, speed = 0;
+			for(int tick = 0; tick < ticks; tick++){
+				world.step();
+				final Reduction r = world.getReduction();
+				temperature += r.getTemperature();
+				speed += r.getAverageSpeed();
+			}
+			final double seconds = (System.nanoTime() - startTime)/1e9;
+			final WallImpulse endImpulse = world.getWallImpulse();
+			final double time = endImpulse.getTime() - startImpulse.getTime();
+			final double[] m = new double[METRICS.length];
+			m[PRESSURE] = (endImpulse.getTotal() - startImpulse.getTotal())/time/(2*(width + height));
+			m[TEMPERATURE] = temperature/ticks;
+			m[AVERAGE_SPEED] = speed/ticks;
+			m[COMPRESSIBILITY] = m[TEMPERATURE] > 0 ? m[PRESSURE]*width*height/(n*m[TEMPERATURE]) : 0;
+			m[OBJECT_RATE] = (world.getObjectCollisions() - startObjects)/time;
+			m[WALL_RATE] = (world.getWallCollisions() - startWalls)/time;
+			m[TICK_RATE] = seconds > 0 ? ticks/seconds : 0;
+			return m;
+		}finally{
+			world.shutdown();
+		}
+	}
+
+	/**
+	 * Fills the store of a workspace with the molecules, centered on the origin, discarding whatever it held.
+	 */
+	private static void fill(Workspace w, int n, double speed, Random r){
+		final ParticleStore p = w.particles;
+		p.clear();
+		if(w.order.length < n)
+			w.order = new int[n];
+		final int[] order = w.order;
+		for(int k = 0; k < n; k++)
+			order[k] = k;
+		for(int k = n-1; k > 0; k--){
+			final int other = r.nextInt(k+1), t = order[k];
+			order[k] = order[other];
+			order[other] = t;
+		}
+		final int columns = (n + ROWS - 1)/ROWS;
+		for(int k = 0; k < n; k++){
+			// the column and row of the molecule, and of the one whose velocity it takes
+			final int i = k/ROWS - (columns-1)/2, j = k%ROWS - (ROWS-1)/2;
+			final int vi = order[k]/ROWS - (columns-1)/2, vj = order[k]%ROWS - (ROWS-1)/2;
+			p.add(i*SPACING, j*SPACING, GasParticle.SIZE, GasParticle.MASS, vi*speed/2, vj*speed/2);
+		}
+	}
+
+	/**
+	 * Writes the mean and the half-width of the confidence interval of every measurement, for every combination, and the runs themselves if asked to.
+	 */
+	private void write() throws IOException {
+		final PrintWriter pw = new PrintWriter(new BufferedWriter(out == null ? new OutputStreamWriter(System.out) : new FileWriter(out)));
+		try{
+			pw.print("molecules,speed,width,height,runs");
+			for(String m: METRICS)
+				pw.print("," + m + "," + m + "CI");
+			pw.println();
+			for(int p = 0; p < points.size(); p++){
+				writePoint(pw, points.get(p));
+				pw.print("," + seeds);
+				for(int m = 0; m < METRICS.length; m++){
+					double sum = 0, squares = 0;
+					for(int s = 0; s < seeds; s++)
+						sum += results[p*seeds + s][m];
+					final double mean = sum/seeds;
+					for(int s = 0; s < seeds; s++){
+						final double d = results[p*seeds + s][m] - mean;
+						squares += d*d;
+					}
+					final double halfWidth = seeds > 1 ? getT975(seeds-1)*Math.sqrt(squares/(seeds-1)/seeds) : Double.NaN;
+					pw.print("," + mean + "," + halfWidth);
+				}
+				pw.println();
+			}
+		}finally{
+			pw.close();
+		}
+		if(runsOut == null)
+			return;
+		final PrintWriter runs = new PrintWriter(new BufferedWriter(new FileWriter(runsOut)));
+		try{
+			runs.print("molecules,speed,width,height,seed");
+			for(String m: METRICS)
+				runs.print("," + m);
+			runs.println();
+			for(int i = 0; i < results.length; i++){
+				writePoint(runs, points.get(i/seeds));
+				runs.print("," + (firstSeed + i%seeds));
+				for(double v: results[i])
+					runs.print("," + v);
+				runs.println();
+			}
+		}finally{
+			runs.close();
+		}
+	}
+
+	private static void writePoint(PrintWriter pw, double[] point){
+		pw.print((int) point[0] + "," + point[1] + "," + point[2] + "," + point[3]);
+	}
+
+	/**
+	 * @param df the degrees of freedom
+	 * @return the 97.5th percentile of Student's t distribution, from the table up to 30 degrees of freedom and from the Cornish-Fisher expansion beyond
+	 */
+	static double getT975(int df){
+		if(df <= T_975.length)
+			return T_975[df-1];
+		final double z = 1.959964, z3 = z*z*z;
+		return z + (z3 + z)/(4*df) + (5*z3*z*z + 16*z3 + 3*z)/(96.0*df*df);
+	}
+
+}
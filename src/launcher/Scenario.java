@@ -0,0 +1,214 @@
+package launcher;
+
+import objects.Thing;
+import physics.BroadPhase;
+import physics.HierarchicalGrid;
+import physics.SweepAndPrune;
+import physics.UniformGrid;
+import ui.Simulator;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The setups of the launchers, apart from their status displays, so that they can also be run without a GUI.
+ * Each one creates the same objects as its launcher, in a field of the same size, with the same strategy for finding collisions;
+ * the launchers themselves take the size of the field and the strategy from here, through {@code configureSimulator()}.
+ * @author Wei Liang
+ */
+public enum Scenario {
+
+	NORMAL(Normal.class, 500, 500){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return Normal.createObjects(r);
+		}
+	},
+	DOUBLE_SPEED(DoubleSpeed.class, 500, 500){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return DoubleSpeed.createObjects(r);
+		}
+	},
+	HALF_SPEED(HalfSpeed.class, 500, 500){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return HalfSpeed.createObjects(r);
+		}
+	},
+	DOUBLE_VOLUME(DoubleVolume.class, 1000, 500){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return DoubleVolume.createObjects(r);
+		}
+	},
+	HALF_VOLUME(HalfVolume.class, 250, 500){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return HalfVolume.createObjects(r);
+		}
+	},
+	DOUBLE_MOLECULES(DoubleMolecules.class, 500, 500){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return DoubleMolecules.createObjects(r);
+		}
+	},
+	HALF_MOLECULES(HalfMolecules.class, 500, 500){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return HalfMolecules.createObjects(r);
+		}
+	},
+	BROWNIAN_MOTION(BrownianMotion.class, 500, 500){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return BrownianMotion.createObjects(r);
+		}
+		@Override
+		public BroadPhase createBroadPhase(){
+			return new HierarchicalGrid();
+		}
+	},
+	TEST_CASE_1(TestCase1.class){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return TestCase1.createObjects();
+		}
+	},
+	TEST_CASE_2(TestCase2.class){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return TestCase2.createObjects();
+		}
+	},
+	TEST_CASE_3(TestCase3.class){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return TestCase3.createObjects();
+		}
+	},
+	TEST_CASE_4(TestCase4.class){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return TestCase4.createObjects();
+		}
+	},
+	TEST_CASE_5(TestCase5.class){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return TestCase5.createObjects();
+		}
+	},
+	TEST_CASE_6(TestCase6.class){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return TestCase6.createObjects();
+		}
+	},
+	TEST_CASE_7(TestCase7.class){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return TestCase7.createObjects();
+		}
+		@Override
+		public BroadPhase createBroadPhase(){
+			return new SweepAndPrune();	// the balls are lined up along one axis
+		}
+	},
+	TEST_CASE_8(TestCase8.class){
+		@Override
+		public ArrayList<? extends Thing> createObjects(Random r){
+			return TestCase8.createObjects();
+		}
+		@Override
+		public BroadPhase createBroadPhase(){
+			return new SweepAndPrune();	// the balls are lined up along one axis
+		}
+	};
+
+	/**
+	 * The size of the field for the test cases, which leave it to the size of the window; this is roughly the field of the default window.
+	 */
+	public static final double DEFAULT_WIDTH = 600, DEFAULT_HEIGHT = 500;
+
+	private final Class<?> launcher;
+	private final double width, height;
+	private final boolean fixedSize;	// whether the launcher sets the size of the field, rather than leaving it to the window
+
+	private Scenario(Class<?> launcher){
+		this(launcher, DEFAULT_WIDTH, DEFAULT_HEIGHT, false);
+	}
+
+	private Scenario(Class<?> launcher, double width, double height){
+		this(launcher, width, height, true);
+	}
+
+	private Scenario(Class<?> launcher, double width, double height, boolean fixedSize){
+		this.launcher = launcher;
+		this.width = width;
+		this.height = height;
+		this.fixedSize = fixedSize;
+	}
+
+	/**
+	 * Creates the objects of the launcher.
+	 * @param r the source of randomness, for the launchers that place or shuffle their objects at random; the others ignore it
+	 * @return the objects, which are not yet in any store but their own
+	 */
+	public abstract ArrayList<? extends Thing> createObjects(Random r);
+
+	/**
+	 * @return a new instance of the strategy used by the launcher to find the pairs of objects that might be colliding
+	 */
+	public BroadPhase createBroadPhase(){
+		return new UniformGrid();
+	}
+
+	/**
+	 * Sets up the simulator to run this scenario: the preferred size of the field, unless it is left to the size of the window, and the strategy for finding collisions.
+	 * This is called by the launcher, before the simulator is initialized.
+	 */
+	public void configureSimulator(){
+		if(fixedSize){
+			Simulator.fieldPrefWidth = (int) width;
+			Simulator.fieldPrefHeight = (int) height;
+		}
+		Simulator.broadPhase = createBroadPhase();
+	}
+
+	/**
+	 * @return the width of the field
+	 */
+	public double getWidth(){
+		return width;
+	}
+
+	/**
+	 * @return the height of the field
+	 */
+	public double getHeight(){
+		return height;
+	}
+
+	/**
+	 * @return the launcher that runs this scenario in the simulator
+	 */
+	public Class<?> getLauncher(){
+		return launcher;
+	}
+
+	/**
+	 * Finds a scenario by its own name, such as {@code DOUBLE_VOLUME}, or by the name of its launcher, such as {@code DoubleVolume}, ignoring case.
+	 * @param name the name
+	 * @return the scenario
+	 * @throws IllegalArgumentException there is no scenario of that name
+	 */
+	public static Scenario forName(String name){
+		for(Scenario s: values())
+			if(s.name().equalsIgnoreCase(name) || s.launcher.getSimpleName().equalsIgnoreCase(name))
+				return s;
+		throw new IllegalArgumentException("No scenario named " + name);
+	}
+
+}
@@ -23,9 +23,7 @@ public final class TestCase1 {
 		Locale[] lang = {
 				Locale.ENGLISH
 		};
-		ArrayList<Ball> objects = new ArrayList<>();
-		objects.add(new Ball(-100, 0, 1, new PhysicsVector(2, 0), Color.RED));
-		objects.add(new Ball(100, 0, 1, new PhysicsVector(0, 0), Color.BLUE));
+		Scenario.TEST_CASE_1.configureSimulator();
 
 		StatusElement.StatusElementInitializer initStatuses = new StatusElement.StatusElementInitializer(){
 			@Override
@@ -37,7 +35,17 @@ public final class TestCase1 {
 			}
 		};
 
-		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), objects, initStatuses);
+		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), createObjects(), initStatuses);
+	}
+
+	/**
+	 * @return The objects of this test case.
+	 */
+	public static ArrayList<Ball> createObjects(){
+		ArrayList<Ball> objects = new ArrayList<>();
+		objects.add(new Ball(-100, 0, 1, new PhysicsVector(2, 0), Color.RED));
+		objects.add(new Ball(100, 0, 1, new PhysicsVector(0, 0), Color.BLUE));
+		return objects;
 	}
 
 }
@@ -23,8 +23,7 @@ public final class TestCase3 {
 		Locale[] lang = {
 				Locale.ENGLISH
 		};
-		ArrayList<Ball> objects = new ArrayList<>();
-		objects.add(new Ball(-10, 0, 1, new PhysicsVector(3, 4), Color.BLACK));
+		Scenario.TEST_CASE_3.configureSimulator();
 
 		StatusElement.StatusElementInitializer initStatuses = new StatusElement.StatusElementInitializer(){
 			@Override
@@ -36,7 +35,16 @@ public final class TestCase3 {
 			}
 		};
 
-		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), objects, initStatuses);
+		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), createObjects(), initStatuses);
+	}
+
+	/**
+	 * @return The objects of this test case.
+	 */
+	public static ArrayList<Ball> createObjects(){
+		ArrayList<Ball> objects = new ArrayList<>();
+		objects.add(new Ball(-10, 0, 1, new PhysicsVector(3, 4), Color.BLACK));
+		return objects;
 	}
 
 }
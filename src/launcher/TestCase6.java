@@ -23,12 +23,7 @@ public final class TestCase6 {
 		Locale[] lang = {
 				Locale.ENGLISH
 		};
-		ArrayList<Ball> objects = new ArrayList<>();
-		objects.add(new Ball(-100, 21, 1, new PhysicsVector(0, 0), Color.RED));
-		objects.add(new Ball(-100, -21, 1, new PhysicsVector(0, 0), Color.GREEN));
-		objects.add(new Ball(-100, 62, 1, new PhysicsVector(0, 0), Color.BLUE));
-		objects.add(new Ball(-100, -62, 1, new PhysicsVector(0, 0), Color.YELLOW));
-		objects.add(new Ball(100, 0, 100, new PhysicsVector(-1, 0), Color.BLACK));
+		Scenario.TEST_CASE_6.configureSimulator();
 
 		StatusElement.StatusElementInitializer initStatuses = new StatusElement.StatusElementInitializer(){
 			@Override
@@ -40,7 +35,20 @@ public final class TestCase6 {
 			}
 		};
 
-		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), objects, initStatuses);
+		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), createObjects(), initStatuses);
+	}
+
+	/**
+	 * @return The objects of this test case.
+	 */
+	public static ArrayList<Ball> createObjects(){
+		ArrayList<Ball> objects = new ArrayList<>();
+		objects.add(new Ball(-100, 21, 1, new PhysicsVector(0, 0), Color.RED));
+		objects.add(new Ball(-100, -21, 1, new PhysicsVector(0, 0), Color.GREEN));
+		objects.add(new Ball(-100, 62, 1, new PhysicsVector(0, 0), Color.BLUE));
+		objects.add(new Ball(-100, -62, 1, new PhysicsVector(0, 0), Color.YELLOW));
+		objects.add(new Ball(100, 0, 100, new PhysicsVector(-1, 0), Color.BLACK));
+		return objects;
 	}
 
 }
@@ -23,14 +23,7 @@ public final class TestCase7 {
 		Locale[] lang = {
 				Locale.ENGLISH
 		};
-		ArrayList<Ball> objects = new ArrayList<>();
-		objects.add(new Ball(-173, 0, 1, new PhysicsVector(2, 0), Color.RED));
-		objects.add(new Ball(-82, 0, 1, new PhysicsVector(0, 0), Color.ORANGE));
-		objects.add(new Ball(-41, 0, 1, new PhysicsVector(0, 0), Color.YELLOW));
-		objects.add(new Ball(0, 0, 1, new PhysicsVector(0, 0), Color.GREEN));
-		objects.add(new Ball(41, 0, 1, new PhysicsVector(0, 0), Color.BLUE));
-		objects.add(new Ball(82, 0, 1, new PhysicsVector(0, 0), Color.INDIGO));
-		objects.add(new Ball(123, 0, 1, new PhysicsVector(0, 0), Color.VIOLET));
+		Scenario.TEST_CASE_7.configureSimulator();
 
 		StatusElement.StatusElementInitializer initStatuses = new StatusElement.StatusElementInitializer(){
 			@Override
@@ -42,7 +35,22 @@ public final class TestCase7 {
 			}
 		};
 
-		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), objects, initStatuses);
+		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), createObjects(), initStatuses);
+	}
+
+	/**
+	 * @return The objects of this test case.
+	 */
+	public static ArrayList<Ball> createObjects(){
+		ArrayList<Ball> objects = new ArrayList<>();
+		objects.add(new Ball(-173, 0, 1, new PhysicsVector(2, 0), Color.RED));
+		objects.add(new Ball(-82, 0, 1, new PhysicsVector(0, 0), Color.ORANGE));
+		objects.add(new Ball(-41, 0, 1, new PhysicsVector(0, 0), Color.YELLOW));
+		objects.add(new Ball(0, 0, 1, new PhysicsVector(0, 0), Color.GREEN));
+		objects.add(new Ball(41, 0, 1, new PhysicsVector(0, 0), Color.BLUE));
+		objects.add(new Ball(82, 0, 1, new PhysicsVector(0, 0), Color.INDIGO));
+		objects.add(new Ball(123, 0, 1, new PhysicsVector(0, 0), Color.VIOLET));
+		return objects;
 	}
 
 }
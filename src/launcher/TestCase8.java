@@ -29,9 +29,33 @@ public final class TestCase8 {
 		Locale[] lang = {
 				Locale.ENGLISH
 		};
+		Scenario.TEST_CASE_8.configureSimulator();
+		Simulator.nodeRendering = true; // so that the cue ball can be outlined
+		final ArrayList<Ball> objects = createObjects();
+		((Circle)objects.get(0).toNode()).setStroke(Color.BLACK);
+
+		StatusElement.StatusElementInitializer initStatuses = new StatusElement.StatusElementInitializer(){
+			@Override
+			public ArrayList<StatusElement> getStatuses() {
+				ArrayList<StatusElement> statuses = new ArrayList<>();
+				statuses.add(new AverageSpeedTracker());
+				statuses.add(new ObjectCollisionCounter());
+				statuses.add(new WallCollisionCounter());
+				statuses.add(new SimulatorHeightTracker());
+				statuses.add(new SimulatorWidthTracker());
+				return statuses;
+			}
+		};
+
+		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), objects, initStatuses);
+	}
+
+	/**
+	 * @return The objects of this test case.
+	 */
+	public static ArrayList<Ball> createObjects(){
 		ArrayList<Ball> objects = new ArrayList<>();
 		Ball cue = new Ball(-200, 0, 1, new PhysicsVector(10, 0), Color.WHITESMOKE);
-		((Circle)cue.toNode()).setStroke(Color.BLACK);
 		Ball center = new Ball(150, 0, 1, new PhysicsVector(0, 0), Color.BLACK);
 		objects.add(cue);
 		objects.add(center);
@@ -49,21 +73,7 @@ public final class TestCase8 {
 		objects.add(new Ball(232, -41, 1, new PhysicsVector(0, 0), Color.BLUE));
 		objects.add(new Ball(232, 82, 1, new PhysicsVector(0, 0), Color.BLUE));
 		objects.add(new Ball(232, -82, 1, new PhysicsVector(0, 0), Color.MAROON));
-
-		StatusElement.StatusElementInitializer initStatuses = new StatusElement.StatusElementInitializer(){
-			@Override
-			public ArrayList<StatusElement> getStatuses() {
-				ArrayList<StatusElement> statuses = new ArrayList<>();
-				statuses.add(new AverageSpeedTracker());
-				statuses.add(new ObjectCollisionCounter());
-				statuses.add(new WallCollisionCounter());
-				statuses.add(new SimulatorHeightTracker());
-				statuses.add(new SimulatorWidthTracker());
-				return statuses;
-			}
-		};
-
-		Simulator.initialize(new I18nUtils("CollisionStringResource", lang), objects, initStatuses);
+		return objects;
 	}
 
 }
@@ -0,0 +1,193 @@
+package objects;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Stores the physical state of many objects as parallel arrays of primitives, one slot per object.
+ * Physics code iterates these arrays directly rather than going through individual {@code Thing}s,
+ * which are merely views onto a slot of a store.
+ * Note that the arrays are replaced when the store grows, so references to them should not be kept across calls to {@code add()}.
+ * @author Wei Liang
+ */
+public final class ParticleStore implements Serializable {
+
+	private static final long serialVersionUID = 5119383315735712419L;
+
+	public double[] x, y, vx, vy;
+	public int[] size, mass;
+	private int count;
+
+	/**
+	 * Creates an empty store.
+	 * @param capacity the number of objects that can be added before the arrays have to grow
+	 */
+	public ParticleStore(int capacity) {
+		capacity = Math.max(capacity, 1);
+		x = new double[capacity];
+		y = new double[capacity];
+		vx = new double[capacity];
+		vy = new double[capacity];
+		size = new int[capacity];
+		mass = new int[capacity];
+	}
+
+	/**
+	 * @return the number of objects in the store
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Adds a new object to the store.
+	 * @param x the horizontal distance from the origin
+	 * @param y the vertical distance from the origin
+	 * @param size the radius of the object
+	 * @param mass the mass of the object
+	 * @param vx the horizontal component of the velocity
+	 * @param vy the vertical component of the velocity
+	 * @return the index of the new object
+	 */
+	public int add(double x, double y, int size, int mass, double vx, double vy) {
+		if(count == this.x.length)
+			grow(count*2);
+		this.x[count] = x;
+		this.y[count] = y;
+		this.size[count] = size;
+		this.mass[count] = mass;
+		this.vx[count] = vx;
+		this.vy[count] = vy;
+		return count++;
+	}
+
+	/**
+	 * Copies an object into the store, after which the object becomes a view onto its new slot.
+	 * @param t the object to add
+	 * @return the index of the object
+	 */
+	public int add(Thing t) {
+		final int index = add(t.getX(), t.getY(), t.size, (int) t.getMass(), t.getVelocityX(), t.getVelocityY());
+		t.bind(this, index);
+		return index;
+	}
+
+	/**
+	 * Removes all objects from the store. The arrays are kept for reuse.
+	 * Any {@code Thing} that was a view onto this store should be discarded.
+	 */
+	public void clear() {
+		count = 0;
+	}
+
+	/**
+	 * Changes the number of objects in the store, growing the arrays if needed, so that their slots can be filled in bulk.
+	 * The state of any slot that is added is left as it was, which is not necessarily 0.
+	 * Any {@code Thing} that was a view onto this store should be discarded.
+	 * @param count the new number of objects
+	 */
+	public void setCount(int count) {
+		if(count > x.length)
+			grow(count);
+		this.count = count;
+	}
+
+	/**
+	 * @return the radius of the largest object in the store, or 0 if the store is empty
+	 */
+	public int getMaxSize() {
+		int max = 0;
+		for(int i = 0; i < count; i++)
+			max = Math.max(max, size[i]);
+		return max;
+	}
+
+	/**
+	 * Advances every object forward one step in time, by adding its velocity to its position.
+	 */
+	public void move() {
+		move(0, count, 1);
+	}
+
+	/**
+	 * Advances the objects in a range of indices forward in time, along their current velocities.
+	 * @param from the first index to move (inclusive)
+	 * @param to the last index to move (exclusive)
+	 * @param dt the length of time to move for, where 1 is one full step
+	 */
+	public void move(int from, int to, double dt) {
+		for(int i = from; i < to; i++){
+			x[i] += vx[i]*dt;
+			y[i] += vy[i]*dt;
+		}
+	}
+
+	/**
+	 * Makes this store an exact copy of another, with arrays of the same capacity.
+	 * @param other the store to copy
+	 */
+	public void copyFrom(ParticleStore other) {
+		if(x.length != other.x.length){
+			x = new double[other.x.length];
+			y = new double[other.x.length];
+			vx = new double[other.x.length];
+			vy = new double[other.x.length];
+			size = new int[other.x.length];
+			mass = new int[other.x.length];
+		}
+		count = other.count;
+		System.arraycopy(other.x, 0, x, 0, count);
+		System.arraycopy(other.y, 0, y, 0, count);
+		System.arraycopy(other.vx, 0, vx, 0, count);
+		System.arraycopy(other.vy, 0, vy, 0, count);
+		System.arraycopy(other.size, 0, size, 0, count);
+		System.arraycopy(other.mass, 0, mass, 0, count);
+	}
+
+	/**
+	 * Exchanges the positions and velocities of every object with those held by another store of the same objects.
+	 * Only references to the arrays are exchanged, so this takes constant time; the sizes and masses are assumed to be the same in both.
+	 * @param other a store created from this one through {@code copyFrom()}
+	 * @throws IllegalArgumentException the stores do not hold the same number of objects, or have different capacities
+	 */
+	public void swap(ParticleStore other) {
+		if(other.count != count || other.x.length != x.length)
+			throw new IllegalArgumentException("Stores do not match!");
+		double[] t = x; x = other.x; other.x = t;
+		t = y; y = other.y; other.y = t;
+		t = vx; vx = other.vx; other.vx = t;
+		t = vy; vy = other.vy; other.vy = t;
+	}
+
+	/**
+	 * Takes over the arrays and objects of another store, which is left empty, so that a whole new set of objects is put in place at once, in constant time.
+	 * Any {@code Thing} that was a view onto either store should be discarded.
+	 * @param other the store to take the objects of
+	 */
+	public void moveFrom(ParticleStore other) {
+		x = other.x;
+		y = other.y;
+		vx = other.vx;
+		vy = other.vy;
+		size = other.size;
+		mass = other.mass;
+		count = other.count;
+		other.x = new double[1];
+		other.y = new double[1];
+		other.vx = new double[1];
+		other.vy = new double[1];
+		other.size = new int[1];
+		other.mass = new int[1];
+		other.count = 0;
+	}
+
+	private void grow(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		vx = Arrays.copyOf(vx, capacity);
+		vy = Arrays.copyOf(vy, capacity);
+		size = Arrays.copyOf(size, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+	}
+
+}
@@ -4,13 +4,10 @@ import javafx.application.Platform;
 import javafx.scene.Node;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
-import physics.CollisionEngine;
 import physics.PhysicsVector;
 import ui.GraphicElement;
-import ui.Simulator;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.StringTokenizer;
 
 /**
@@ -27,12 +24,11 @@ public class Thing implements GraphicElement, Cloneable, Serializable {
 	private final Color fill;
 	
 	// overlap
-	protected volatile double x, y;
 	public final int size;
 	
-	// strictly physics related
-	protected final int mass;
-	protected final PhysicsVector v;
+	// strictly physics related; the state itself lives in the store
+	private ParticleStore store;
+	private int index;
 
 	/**
 	 * Creates a new object to be placed in the simulator.
@@ -59,37 +55,76 @@ public class Thing implements GraphicElement, Cloneable, Serializable {
 	 * @param fill the fill color of the object
 	 */
 	protected Thing(double x, double y, int size, int mass, PhysicsVector velocity, Color fill) {
-		this.x = x;
-		this.y = y;
 		this.size = size;
-		this.mass = mass;
-		this.v = velocity;
 		this.fill = fill;
-		c = new Circle(size);
-		c.setTranslateX(x);
-		c.setTranslateY(y);
-		c.setFill(fill);
+		this.store = new ParticleStore(1);
+		this.index = store.add(x, y, size, mass, velocity.x, velocity.y);
+	}
+
+	/**
+	 * Creates a view onto an object whose state is already in a slot of a store, without copying it.
+	 */
+	private Thing(ParticleStore store, int index, Color fill) {
+		this.size = store.size[index];
+		this.fill = fill;
+		this.store = store;
+		this.index = index;
+	}
+	
+	/**
+	 * Creates a new object as a view onto a slot of a store, such as one that was filled in bulk from a file.
+	 * Unlike {@code ParticleStore.add()}, the state is neither copied nor changed.
+	 * @param store the store holding the state of the object
+	 * @param index the index of the object within the store
+	 * @param fill the fill color of the object
+	 * @return the object
+	 */
+	public static final Thing viewOf(ParticleStore store, int index, Color fill) {
+		return new Thing(store, index, fill);
+	}
+
+	/**
+	 * Makes this object a view onto a slot of another store.
+	 * This should only be called by {@code ParticleStore.add()}, once the state has been copied into the slot.
+	 */
+	final void bind(ParticleStore store, int index) {
+		this.store = store;
+		this.index = index;
+	}
+	
+	/**
+	 * @return the store holding the state of this object
+	 */
+	public final ParticleStore getStore() {
+		return store;
+	}
+	
+	/**
+	 * @return the index of this object within its store
+	 */
+	public final int getIndex() {
+		return index;
 	}
 
 	/**
 	 * @return the horizontal distance of the object from the origin
 	 */
 	public final double getX() {
-		return x;
+		return store.x[index];
 	}
 
 	/**
 	 * @return the distance of the object from the origin
 	 */
 	public final double getY() {
-		return y;
+		return store.y[index];
 	}
 	
 	/**
 	 * @return the mass of the object
 	 */
 	public final double getMass() {
-		return mass;
+		return store.mass[index];
 	}
 	
 	/**
@@ -97,15 +132,40 @@ public class Thing implements GraphicElement, Cloneable, Serializable {
 	 * @return the momentum of the current object in a {@code PhysicsVector}
 	 */
 	public final PhysicsVector getMomentumVector(){
-		return v.scalarMultiply(mass);
+		return new PhysicsVector(store.vx[index]*store.mass[index], store.vy[index]*store.mass[index]);
 	}
 	
 	/**
 	 * The object's velocity defines how many pixels an object will travel in a single frame.
+	 * Note that the returned vector is a copy; changing it does not affect the object. Use {@code setVelocity()} instead.
 	 * @return the velocity of the object
 	 */
 	public final PhysicsVector getVelocityVector(){
-		return v;
+		return new PhysicsVector(store.vx[index], store.vy[index]);
+	}
+	
+	/**
+	 * @return the horizontal component of the velocity of the object
+	 */
+	public final double getVelocityX(){
+		return store.vx[index];
+	}
+	
+	/**
+	 * @return the vertical component of the velocity of the object
+	 */
+	public final double getVelocityY(){
+		return store.vy[index];
+	}
+	
+	/**
+	 * Changes the velocity of the object.
+	 * @param vx the new horizontal component of the velocity
+	 * @param vy the new vertical component of the velocity
+	 */
+	public final void setVelocity(double vx, double vy){
+		store.vx[index] = vx;
+		store.vy[index] = vy;
 	}
 	
 	/**
@@ -114,42 +174,60 @@ public class Thing implements GraphicElement, Cloneable, Serializable {
 	 * @return the position vector of the object
 	 */
 	public final PhysicsVector getPositionVector(){
-		return new PhysicsVector(x, y);
+		return new PhysicsVector(store.x[index], store.y[index]);
 	}
 	
 	/**
 	 * Advances the object forward one step in time.
 	 * The length/frequency of this step is determined by the simulation speed.
-	 * This method also checks and resolves any collision involving this object and another object, or the wall.
-	 * Finally, the corresponding GUI element is updated to reflect the new position.
-	 */
-	public synchronized final void move() {
-		x += v.x;
-		y += v.y;
-		ArrayList<Thing> obj = Simulator.getInstance().getObjects();
-		for(Thing t: obj){
-			if(t != this)
-				CollisionEngine.computePossibleCollision(this, t);
-			CollisionEngine.computePossibleWallCollision(this);
-		}
-		updateNode();
+	 * Collisions are not resolved here, and the GUI element is not updated; see {@code World.step()} and {@code updateNode()}.
+	 * When the whole simulation is stepped, {@code ParticleStore.move()} is used instead.
+	 */
+	public final void move() {
+		store.x[index] += store.vx[index];
+		store.y[index] += store.vy[index];
+	}
+	
+	/**
+	 * @return the fill color of the object
+	 */
+	public final Color getFill() {
+		return fill;
 	}
 	
 	/**
 	 * Updates the GUI element to the current position.
+	 * Nothing is done if the GUI element has not been created through {@code toNode()}.
+	 * If this is not called on the JavaFX application thread, the update is posted to it.
 	 */
-	private final void updateNode() {
+	public final void updateNode() {
+		if(c == null)
+			return;
+		if(Platform.isFxApplicationThread()){
+			c.setTranslateX(getX());
+			c.setTranslateY(getY());
+			return;
+		}
 		Platform.runLater(new Runnable(){
 			@Override
 			public void run(){
-				c.setTranslateX(x);
-				c.setTranslateY(y);				
+				c.setTranslateX(getX());
+				c.setTranslateY(getY());				
 			}
 		});
 	}
 	
+	/**
+	 * The GUI element is only created when first requested, so that objects can be created and simulated without the GUI.
+	 */
 	@Override
 	public final Node toNode() {
+		if(c == null){
+			c = new Circle(size);
+			c.setTranslateX(getX());
+			c.setTranslateY(getY());
+			c.setFill(fill);
+		}
 		return c;
 	}
 	
@@ -160,7 +238,7 @@ public class Thing implements GraphicElement, Cloneable, Serializable {
 	 */
 	@Override
 	public final String toString(){
-		return "" + x + delim + y + delim + size + delim + mass + delim + v.x + delim + v.y + delim + fill.getRed() + delim + fill.getGreen() + delim + fill.getBlue();
+		return "" + getX() + delim + getY() + delim + size + delim + store.mass[index] + delim + getVelocityX() + delim + getVelocityY() + delim + fill.getRed() + delim + fill.getGreen() + delim + fill.getBlue();
 	}
 	
 	/**
@@ -178,7 +256,7 @@ public class Thing implements GraphicElement, Cloneable, Serializable {
 	
 	@Override
 	public Thing clone(){
-		return new Thing(x, y, size, mass, v.clone(), fill);
+		return new Thing(getX(), getY(), size, store.mass[index], getVelocityVector(), fill);
 	}
 	
 }
@@ -0,0 +1,22 @@
+package physics;
+
+import objects.ParticleStore;
+
+/**
+ * The simplest {@code BroadPhase}, which tests every unordered pair of objects.
+ * It takes O(n<sup>2</sup>) time, but is useful as a reference to compare the other strategies against.
+ * @author Wei Liang
+ */
+public final class AllPairs implements BroadPhase {
+
+	@Override
+	public int computeCollisions(ParticleStore particles, double dt){
+		int collisions = 0;
+		for(int i = 0; i < particles.count(); i++)
+			for(int j = i+1; j < particles.count(); j++)
+				if(CollisionEngine.computePossibleCollision(particles, i, j, dt))
+					collisions++;
+		return collisions;
+	}
+
+}
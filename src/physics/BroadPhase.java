@@ -0,0 +1,22 @@
+package physics;
+
+import objects.ParticleStore;
+
+/**
+ * A strategy for finding the pairs of objects that might be colliding, so that only those are passed on to the narrow phase in {@code CollisionEngine}.
+ * Implementations differ only in speed: every pair of overlapping objects must be found, and each pair must be tested at most once per tick.
+ * Implementations may keep state between ticks, so an instance should only be used by one {@code World} at a time.
+ * @author Wei Liang
+ */
+public interface BroadPhase {
+
+	/**
+	 * Detects and resolves collisions between all pairs of objects that might overlap.
+	 * Each candidate pair should be passed on to {@code CollisionEngine.computePossibleCollision(ParticleStore, int, int, double)} with the given {@code dt}.
+	 * @param particles the store holding the state of the objects, after they have all been moved
+	 * @param dt the time the objects have moved for since they were last checked, or 0 to resolve collisions where the objects are now
+	 * @return the number of collisions that took place
+	 */
+	int computeCollisions(ParticleStore particles, double dt);
+
+}
@@ -1,26 +1,62 @@
 package physics;
 
-import javafx.scene.layout.Region;
+import objects.ParticleStore;
 import objects.Thing;
-import status.*;
-import ui.Simulator;
-
-import java.util.ArrayList;
 
 /**
  * Contains utilities to detect and compute collisions.
+ * None of these depend on the GUI; the number of collisions is returned to the caller, which is normally a {@code World}.
  * @author Wei Liang
  */
 public final class CollisionEngine {
 
 	private CollisionEngine() {}
+	
+	/**
+	 * Detects and resolves any collisions between the objects in a range of indices and the wall boundaries.
+	 * @param particles the store holding the state of the objects
+	 * @param from the first index to check (inclusive)
+	 * @param to the last index to check (exclusive)
+	 * @param halfWidth half the width of the field, since the origin is at its center
+	 * @param halfHeight half the height of the field
+	 * @param dt the time since the objects were last checked, or 0 to resolve the collisions where the objects are now; see {@code computePossibleWallCollision()}
+	 * @return the number of collisions with the walls that took place
+	 */
+	public static int computeWallCollisions(ParticleStore particles, int from, int to, double halfWidth, double halfHeight, double dt){
+		return computeWallCollisions(particles, from, to, halfWidth, halfHeight, dt, null, null);
+	}
+	
+	/**
+	 * Detects and resolves collisions with the walls for the objects in a range of indices,
+	 * recording the impulse on each wall, and adding each object to a set of totals in the same pass once its collisions have been resolved.
+	 * @param particles the store holding the objects
+	 * @param from the first index to check (inclusive)
+	 * @param to the last index to check (exclusive)
+	 * @param halfWidth half the width of the field, since the origin is at its center
+	 * @param halfHeight half the height of the field
+	 * @param dt the time since the objects were last checked, or 0 to resolve the collisions where the objects are now
+	 * @param reduction the totals to add the objects to, or {@code null} if none are needed
+	 * @param impulses the accumulator to add the impulse of each collision to, or {@code null} if it is not needed
+	 * @return the number of collisions with the walls that took place
+	 */
+	static int computeWallCollisions(ParticleStore particles, int from, int to, double halfWidth, double halfHeight, double dt, Reduction reduction, WallImpulse impulses){
+		int collisions = 0;
+		for(int i = from; i < to; i++){
+			collisions += computePossibleWallCollision(particles, i, halfWidth, halfHeight, dt, impulses);
+			if(reduction != null)
+				reduction.add(particles, i);
+		}
+		return collisions;
+	}
+	
 	/**
 	 * Detects and resolves any collision between two objects.
 	 * @param t1 the first colliding object
 	 * @param t2 the second colliding object
+	 * @return whether a collision took place
 	 * @throws IllegalArgumentException {@code t1} and {@code t2} are identical
 	 */
-	public static synchronized void computePossibleCollision(Thing t1, Thing t2){
+	public static boolean computePossibleCollision(Thing t1, Thing t2){
 		if(t1==t2) throw new IllegalArgumentException("Objects are equal!");
 		final PhysicsVector rawNormal = t2.getPositionVector().subtract(t1.getPositionVector());
 		final double distance = t1.size+t2.size, initDistance = rawNormal.getMagnitude();
@@ -36,7 +72,7 @@ public final class CollisionEngine {
 					m2 = t2.getMass();
 			
 			if(n1 < 0 && n2 > 0)
-				return; // objects are separating, do nothing more
+				return false; // objects are separating, do nothing more
 			
 			final double 
 					n1f = (m1*n1+m2*(2*n2-n1))/(m1+m2),
@@ -45,57 +81,220 @@ public final class CollisionEngine {
 					v1f = normal.scalarMultiply(n1f).add(collision.scalarMultiply(c1)),
 					v2f = normal.scalarMultiply(n2f).add(collision.scalarMultiply(c2));
 			
-			t1.getVelocityVector().x = v1f.x;
-			t1.getVelocityVector().y = v1f.y;
-			t2.getVelocityVector().x = v2f.x;
-			t2.getVelocityVector().y = v2f.y;
-			incObjectCollisions();
+			t1.setVelocity(v1f.x, v1f.y);
+			t2.setVelocity(v2f.x, v2f.y);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Detects and resolves any collision between two objects in a store, without allocating any objects.
+	 * The result is the same as that of {@code computePossibleCollision(Thing, Thing)}, but the computation is done on scalars,
+	 * and pairs that do not overlap are rejected by their squared distance before any square root is taken.
+	 * Two objects at exactly the same position have no defined line of collision, so they are left untouched.
+	 * @param p the store holding both objects
+	 * @param i the index of the first colliding object
+	 * @param j the index of the second colliding object
+	 * @return whether a collision took place
+	 * @throws IllegalArgumentException {@code i} and {@code j} are identical
+	 */
+	public static boolean computePossibleCollision(ParticleStore p, int i, int j){
+		return computePossibleCollision(p, i, j, 0);
+	}
+	
+	/**
+	 * Detects and resolves any collision between two objects in a store, at the moment the objects first touched.
+	 * The objects are taken to have moved along their current velocities for {@code dt} since they were last checked.
+	 * If they overlap and are approaching each other, both are moved back to the moment they touched (but no further back than {@code dt}),
+	 * the collision is resolved there, and both are moved forward again by the same amount of time along their new velocities.
+	 * This is the swept-circle test of continuous collision detection; it does not allocate any objects either.
+	 * @param p the store holding both objects
+	 * @param i the index of the first colliding object
+	 * @param j the index of the second colliding object
+	 * @param dt the time since the objects were last checked, or 0 to resolve the collision where the objects are now
+	 * @return whether a collision took place
+	 * @throws IllegalArgumentException {@code i} and {@code j} are identical
+	 */
+	public static boolean computePossibleCollision(ParticleStore p, int i, int j, double dt){
+		if(i==j) throw new IllegalArgumentException("Objects are equal!");
+		double dx = p.x[j]-p.x[i], dy = p.y[j]-p.y[i];
+		final double distance = p.size[i]+p.size[j];
+		final double squaredDistance = dx*dx+dy*dy;
+		if(squaredDistance > distance*distance || squaredDistance == 0)
+			return false;
+		
+		final double
+				vx1 = p.vx[i], vy1 = p.vy[i],
+				vx2 = p.vx[j], vy2 = p.vy[j];
+		double rewind = 0;
+		if(dt > 0){
+			// solve |(dx, dy) - (dvx, dvy)*s| = distance for the time s since the objects first touched
+			final double dvx = vx2-vx1, dvy = vy2-vy1, dvdr = dx*dvx+dy*dvy, dvdv = dvx*dvx+dvy*dvy;
+			if(dvdr < 0){
+				rewind = Math.min(dt, (dvdr + Math.sqrt(dvdr*dvdr - dvdv*(squaredDistance - distance*distance)))/dvdv);
+				dx -= dvx*rewind;
+				dy -= dvy*rewind;
+			}
+		}
+		
+		// the normal is the unit vector from i to j, and the line of collision (-ny, nx) is perpendicular to it
+		final double initDistance = Math.sqrt(dx*dx+dy*dy), nx = dx/initDistance, ny = dy/initDistance;
+		final double
+				n1 = nx*vx1+ny*vy1,
+				n2 = nx*vx2+ny*vy2;
+		
+		if(n1 < 0 && n2 > 0)
+			return false; // objects are separating, do nothing more
+		
+		final double
+				c1 = nx*vy1-ny*vx1,
+				c2 = nx*vy2-ny*vx2,
+				m1 = p.mass[i],
+				m2 = p.mass[j],
+				n1f = (m1*n1+m2*(2*n2-n1))/(m1+m2),
+				n2f = (m1*(2*n1-n2)+m2*n2)/(m1+m2);
+		
+		p.vx[i] = nx*n1f-ny*c1;
+		p.vy[i] = ny*n1f+nx*c1;
+		p.vx[j] = nx*n2f-ny*c2;
+		p.vy[j] = ny*n2f+nx*c2;
+		if(rewind > 0){
+			// replace the part of the path travelled since the moment of contact with the new velocities
+			p.x[i] += (p.vx[i]-vx1)*rewind;
+			p.y[i] += (p.vy[i]-vy1)*rewind;
+			p.x[j] += (p.vx[j]-vx2)*rewind;
+			p.y[j] += (p.vy[j]-vy2)*rewind;
 		}
+		return true;
+	}
+	
+	/**
+	 * @param p the store holding both objects
+	 * @param i the index of the first object
+	 * @param j the index of the second object
+	 * @return the speed at which two overlapping objects are approaching each other along the line between their centers,
+	 * or 0 if they do not overlap or are not approaching each other. The result is the same if the indices are swapped.
+	 */
+	public static double getApproachSpeed(ParticleStore p, int i, int j){
+		final double dx = p.x[j]-p.x[i], dy = p.y[j]-p.y[i];
+		final double distance = p.size[i]+p.size[j];
+		final double squaredDistance = dx*dx+dy*dy;
+		if(squaredDistance > distance*distance || squaredDistance == 0)
+			return 0;
+		final double approach = (dx*(p.vx[i]-p.vx[j]) + dy*(p.vy[i]-p.vy[j]))/Math.sqrt(squaredDistance);
+		return Math.max(approach, 0);
+	}
+	
+	/**
+	 * Computes the change in velocity that one object would receive from a collision with another, without modifying either object.
+	 * The collision is resolved as in {@code computePossibleCollision(ParticleStore, int, int)},
+	 * and the result for {@code j} is found by swapping the indices, so that each object can compute its own change independently.
+	 * Only pairs that are actually approaching each other collide here, rather than every pair that is not moving directly apart.
+	 * @param p the store holding both objects, which is only read
+	 * @param i the index of the object whose change in velocity is computed
+	 * @param j the index of the object it collides with
+	 * @param dv receives the change in the horizontal and vertical components of the velocity of {@code i}, if a collision took place
+	 * @return whether a collision took place
+	 * @throws IllegalArgumentException {@code i} and {@code j} are identical
+	 */
+	public static boolean computeVelocityChange(ParticleStore p, int i, int j, double[] dv){
+		if(i==j) throw new IllegalArgumentException("Objects are equal!");
+		final double dx = p.x[j]-p.x[i], dy = p.y[j]-p.y[i];
+		final double distance = p.size[i]+p.size[j];
+		final double squaredDistance = dx*dx+dy*dy;
+		if(squaredDistance > distance*distance || squaredDistance == 0)
+			return false;
+		
+		final double initDistance = Math.sqrt(squaredDistance), nx = dx/initDistance, ny = dy/initDistance;
+		final double
+				n1 = nx*p.vx[i]+ny*p.vy[i],
+				n2 = nx*p.vx[j]+ny*p.vy[j];
+		
+		if(n1 <= n2)
+			return false; // objects are not approaching, do nothing more
+		
+		// only the component along the normal changes, from n1 to (m1*n1+m2*(2*n2-n1))/(m1+m2)
+		final double m1 = p.mass[i], m2 = p.mass[j], dn = 2*m2*(n2-n1)/(m1+m2);
+		dv[0] = nx*dn;
+		dv[1] = ny*dn;
+		return true;
 	}
 	
 	/**
 	 * Detects and resolves any collision an object has with the wall boundaries.
 	 * If the object is already moving towards the boundary in question, no collision takes place.
 	 * @param t the object to check
+	 * @param halfWidth half the width of the field, since the origin is at its center
+	 * @param halfHeight half the height of the field
+	 * @return the number of walls the object collided with
 	 */
-	public static synchronized void computePossibleWallCollision(Thing t){
-		Region field =  Simulator.getInstance().getField();
-		if((t.getY() + t.size > field.getHeight()/2 && t.getVelocityVector().y > 0)||(t.getY() + field.getHeight()/2 - t.size < 0 && t.getVelocityVector().y < 0)){
-			incWallCollisions();
-			t.getVelocityVector().y *= -1;
-		}
-		if((t.getX() + t.size > field.getWidth()/2 && t.getVelocityVector().x > 0)||(t.getX() + field.getWidth()/2 - t.size < 0 && t.getVelocityVector().x < 0)){
-			incWallCollisions();
-			t.getVelocityVector().x *= -1;
-		}
+	public static int computePossibleWallCollision(Thing t, double halfWidth, double halfHeight){
+		return computePossibleWallCollision(t.getStore(), t.getIndex(), halfWidth, halfHeight);
 	}
 	
 	/**
-	 * Increments the counter of all {@code ObjectCollisionRateCounter}s by one.
-	 * This method should not be called directly; it is automatically called when a collision is detected. 
+	 * Detects and resolves any collision an object in a store has with the wall boundaries, without allocating any objects.
+	 * If the object is already moving towards the boundary in question, no collision takes place.
+	 * @param p the store holding the object
+	 * @param i the index of the object to check
+	 * @param halfWidth half the width of the field, since the origin is at its center
+	 * @param halfHeight half the height of the field
+	 * @return the number of walls the object collided with
 	 */
-	private static void incObjectCollisions(){
-		ArrayList<StatusElement> array = Simulator.getStatuses();
-		for(StatusElement e: array)
-			if(e instanceof ObjectCollisionRateCounter)
-				((ObjectCollisionRateCounter) e).inc();
-			else
-				if(e instanceof ObjectCollisionCounter)
-					((ObjectCollisionCounter) e).inc();
+	public static int computePossibleWallCollision(ParticleStore p, int i, double halfWidth, double halfHeight){
+		return computePossibleWallCollision(p, i, halfWidth, halfHeight, 0);
+	}
+	
+	/**
+	 * Detects and resolves any collision an object in a store has with the wall boundaries, at the moment the object touched the wall.
+	 * The object is taken to have moved along its current velocity for {@code dt} since it was last checked.
+	 * Whatever distance it has travelled past the wall since then is reflected back into the field, as if it had bounced off the wall at the moment of contact.
+	 * @param p the store holding the object
+	 * @param i the index of the object to check
+	 * @param halfWidth half the width of the field, since the origin is at its center
+	 * @param halfHeight half the height of the field
+	 * @param dt the time since the object was last checked, or 0 to only reverse the velocity where the object is now
+	 * @return the number of walls the object collided with
+	 */
+	public static int computePossibleWallCollision(ParticleStore p, int i, double halfWidth, double halfHeight, double dt){
+		return computePossibleWallCollision(p, i, halfWidth, halfHeight, dt, null);
+	}
+	
+	/**
+	 * Detects and resolves any collision an object in a store has with the wall boundaries, as in {@code computePossibleWallCollision(ParticleStore, int, double, double, double)},
+	 * recording the momentum transferred to each wall that was hit.
+	 * @param impulses the accumulator to add the impulse of each collision to, or {@code null} if it is not needed
+	 */
+	static int computePossibleWallCollision(ParticleStore p, int i, double halfWidth, double halfHeight, double dt, WallImpulse impulses){
+		final int size = p.size[i];
+		int collisions = 0;
+		if((p.y[i] + size > halfHeight && p.vy[i] > 0)||(p.y[i] + halfHeight - size < 0 && p.vy[i] < 0)){
+			collisions++;
+			if(impulses != null)
+				impulses.add(p.vy[i] > 0 ? WallImpulse.BOTTOM : WallImpulse.TOP, 2*p.mass[i]*Math.abs(p.vy[i]));
+			if(dt > 0)
+				p.y[i] -= 2*getOvershoot(p.y[i], p.vy[i], size, halfHeight, dt);
+			p.vy[i] *= -1;
+		}
+		if((p.x[i] + size > halfWidth && p.vx[i] > 0)||(p.x[i] + halfWidth - size < 0 && p.vx[i] < 0)){
+			collisions++;
+			if(impulses != null)
+				impulses.add(p.vx[i] > 0 ? WallImpulse.RIGHT : WallImpulse.LEFT, 2*p.mass[i]*Math.abs(p.vx[i]));
+			if(dt > 0)
+				p.x[i] -= 2*getOvershoot(p.x[i], p.vx[i], size, halfWidth, dt);
+			p.vx[i] *= -1;
+		}
+		return collisions;
 	}
 	
 	/**
-	 * Increments the counter of all {@code WallCollisionRateCounter}s by one.
-	 * This method should not be called directly; it is automatically called when a collision is detected.
+	 * @return the distance along one axis an object has travelled past the wall it is moving towards, but no more than it travelled in {@code dt}.
+	 * The distance has the same sign as the velocity.
 	 */
-	private static void incWallCollisions(){
-		ArrayList<StatusElement> array = Simulator.getStatuses();
-		for(StatusElement e: array)
-			if(e instanceof WallCollisionRateCounter)
-				((WallCollisionRateCounter) e).inc();
-			else
-				if(e instanceof WallCollisionCounter)
-					((WallCollisionCounter) e).inc();
+	private static double getOvershoot(double position, double velocity, int size, double half, double dt){
+		final double past = velocity > 0 ? position + size - half : position - size + half;
+		return Math.signum(velocity)*Math.min(Math.abs(past), Math.abs(velocity)*dt);
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package physics;
+
+import objects.ParticleStore;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Advances a whole store by one tick, computing the state at the next tick purely from the state at the current one.
+ * The next state is written into a second store, and the two are swapped once the tick is complete,
+ * so the store being stepped is never written to during a tick, and every object sees the others exactly as they were at its start.
+ * The swap exchanges the arrays of the stores one at a time, so the store must still only be read from the thread that steps it.
+ * Readers on other threads are instead given copies taken on that thread once each tick is complete, through a {@code World.Listener},
+ * which they can then read without any locking: the frames of a {@code ParticleCanvas}, the copies of a {@code Checkpointer} and the chunks of a {@code TrajectoryRecorder}.
+ * <p>
+ * Collisions between objects are resolved in two passes, each of which only reads the current state, so the order in which objects are visited never matters,
+ * and the results are exactly the same for any number of threads.
+ * First, every object picks the overlapping object it is approaching fastest as its partner.
+ * Then, every pair of objects that picked each other collides, exactly as it would on its own, so momentum and kinetic energy are both conserved.
+ * An object in contact with several others at once therefore only collides with one of them per tick; the others, still approaching it, collide in later ticks.
+ * Collisions between objects are resolved where the objects are at the start of the tick; each object is then moved along its new velocity and bounced off the walls.
+ * @author Wei Liang
+ */
+public final class DoubleBufferedStepper {
+
+	/**
+	 * The number of objects below which a range is no longer split.
+	 */
+	private static final int THRESHOLD = 4096;
+
+	private final ForkJoinPool pool;	// null if the stepper runs on the calling thread
+	private final UniformGrid grid = new UniformGrid();
+	private final ParticleStore previous = new ParticleStore(1);
+	private int[] partner = new int[0];	// the partner of each object in the current tick, or -1 if it has none
+	private long objectCollisions, wallCollisions;
+
+	/**
+	 * @param parallelism the number of worker threads to use; if this is 1, the stepper runs on the calling thread
+	 */
+	public DoubleBufferedStepper(int parallelism) {
+		this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+	}
+
+	/**
+	 * Advances every object in the store forward in time, and resolves all collisions.
+	 * Objects should not be added to or removed from the store during the call.
+	 * @param particles the store to advance
+	 * @param dt the length of time to move for, where 1 is one full step
+	 * @param continuous whether collisions with the walls should be resolved at the moment of contact within {@code dt}
+	 * @param halfWidth half the width of the field, since the origin is at its center
+	 * @param halfHeight half the height of the field
+	 * @param reduction the totals to add every object to once the step is complete, or {@code null} if none are needed
+	 * @param impulses the accumulator to add the impulse on each wall to, or {@code null} if it is not needed
+	 */
+	public void step(ParticleStore particles, double dt, boolean continuous, double halfWidth, double halfHeight, Reduction reduction, WallImpulse impulses){
+		if(previous.count() != particles.count() || previous.x.length != particles.x.length)
+			previous.copyFrom(particles);
+		grid.build(particles);
+		if(partner.length < particles.count())
+			partner = new int[particles.x.length];
+		final PartnerTask partners = new PartnerTask(particles, 0, particles.count());
+		if(pool == null)
+			partners.compute();
+		else
+			pool.invoke(partners);
+		final RangeTask task = new RangeTask(particles, 0, particles.count(), dt, continuous ? dt : 0, halfWidth, halfHeight, reduction, impulses);
+		final long walls = pool == null ? task.compute() : pool.invoke(task);
+		objectCollisions += task.objectCollisions;
+		wallCollisions += walls;
+		particles.swap(previous);
+	}
+
+	/**
+	 * Must be called whenever objects in the store are replaced, so that the second store is copied afresh before the next tick.
+	 */
+	public void reset(){
+		previous.clear();
+	}
+
+	/**
+	 * @return the total number of collisions between objects resolved by this stepper
+	 */
+	public long getObjectCollisions(){
+		return objectCollisions;
+	}
+
+	/**
+	 * @return the total number of collisions with the walls resolved by this stepper
+	 */
+	public long getWallCollisions(){
+		return wallCollisions;
+	}
+
+	/**
+	 * Stops any worker threads. The stepper should not be used afterwards.
+	 */
+	public void shutdown(){
+		if(pool != null)
+			pool.shutdownNow();
+	}
+
+	/**
+	 * Finds the partner of each object in a range of indices.
+	 */
+	private final class PartnerTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 7470941393425934316L;
+
+		private final ParticleStore current;
+		private final int from, to;
+
+		PartnerTask(ParticleStore current, int from, int to){
+			this.current = current;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if(pool != null && to - from > THRESHOLD){
+				final int middle = (from + to) >>> 1;
+				invokeAll(new PartnerTask(current, from, middle), new PartnerTask(current, middle, to));
+			}else
+				grid.findPartners(current, partner, from, to);
+		}
+
+	}
+
+	/**
+	 * Computes the next state of the objects in a range of indices, reading only from {@code current} and the partners found in it.
+	 * The result is the number of collisions with the walls; the number of collisions between objects is left in {@code objectCollisions}.
+	 * The objects may also be added to a set of totals in their new state and their impulses on the walls recorded, which each half of a split range gathers separately.
+	 */
+	private final class RangeTask extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = -3165786393394402826L;
+
+		private final ParticleStore current;
+		private final int from, to;
+		private final double dt, sweep, halfWidth, halfHeight;
+		private final Reduction reduction;
+		private final WallImpulse impulses;
+		long objectCollisions;
+
+		RangeTask(ParticleStore current, int from, int to, double dt, double sweep, double halfWidth, double halfHeight, Reduction reduction, WallImpulse impulses){
+			this.current = current;
+			this.from = from;
+			this.to = to;
+			this.dt = dt;
+			this.sweep = sweep;
+			this.halfWidth = halfWidth;
+			this.halfHeight = halfHeight;
+			this.reduction = reduction;
+			this.impulses = impulses;
+		}
+
+		@Override
+		protected Long compute(){
+			if(pool != null && to - from > THRESHOLD){
+				final int middle = (from + to) >>> 1;
+				final RangeTask left = new RangeTask(current, from, middle, dt, sweep, halfWidth, halfHeight,
+								reduction == null ? null : new Reduction(), impulses == null ? null : new WallImpulse()),
+						right = new RangeTask(current, middle, to, dt, sweep, halfWidth, halfHeight,
+								reduction == null ? null : new Reduction(), impulses == null ? null : new WallImpulse());
+				invokeAll(left, right);
+				objectCollisions = left.objectCollisions + right.objectCollisions;
+				if(reduction != null){
+					reduction.merge(left.reduction);
+					reduction.merge(right.reduction);
+				}
+				if(impulses != null){
+					impulses.merge(left.impulses);
+					impulses.merge(right.impulses);
+				}
+				return left.join() + right.join();
+			}
+			final ParticleStore next = previous;
+			final double[] dv = new double[2];
+			long walls = 0;
+			for(int i = from; i < to; i++){
+				final int j = partner[i];
+				next.vx[i] = current.vx[i];
+				next.vy[i] = current.vy[i];
+				if(j >= 0 && partner[j] == i && CollisionEngine.computeVelocityChange(current, i, j, dv)){
+					next.vx[i] += dv[0];
+					next.vy[i] += dv[1];
+					if(j > i)
+						objectCollisions++;
+				}
+				next.x[i] = current.x[i] + next.vx[i]*dt;
+				next.y[i] = current.y[i] + next.vy[i]*dt;
+				walls += CollisionEngine.computePossibleWallCollision(next, i, halfWidth, halfHeight, sweep, impulses);
+				if(reduction != null)
+					reduction.add(next, i);
+			}
+			return walls;
+		}
+
+	}
+
+}
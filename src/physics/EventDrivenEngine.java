@@ -0,0 +1,237 @@
+package physics;
+
+import objects.ParticleStore;
+
+import java.util.PriorityQueue;
+
+/**
+ * An alternative to stepping the simulation tick by tick, which predicts the exact time of every collision and jumps from one collision to the next.
+ * Objects can never pass through each other or through the walls, however fast they are, and kinetic energy is conserved exactly (up to rounding).
+ * <p>
+ * Time is measured in ticks, so an object still travels its velocity in pixels during each unit of time.
+ * Each object keeps only its earliest predicted collision in the queue.
+ * Predictions are invalidated lazily: every object counts its collisions, and an event is discarded when it is taken off the queue
+ * if either object has collided since the event was predicted.
+ * @author Wei Liang
+ */
+public final class EventDrivenEngine {
+
+	/**
+	 * The partner of an object in an event with a vertical (left or right) or horizontal (top or bottom) wall.
+	 */
+	private static final int VERTICAL_WALL = -1, HORIZONTAL_WALL = -2;
+
+	private final ParticleStore particles;
+	private final PriorityQueue<Event> events = new PriorityQueue<>();
+	private int[] collisions;
+	private double halfWidth, halfHeight;
+	private double time;
+	private long objectCollisions, wallCollisions;
+
+	/**
+	 * Predicts the first collision of every object in the store.
+	 * If objects are later added to or removed from the store, a new engine should be created.
+	 * @param particles the objects to simulate
+	 * @param halfWidth half the width of the field, since the origin is at its center
+	 * @param halfHeight half the height of the field
+	 */
+	public EventDrivenEngine(ParticleStore particles, double halfWidth, double halfHeight) {
+		this.particles = particles;
+		setBounds(halfWidth, halfHeight);
+	}
+
+	/**
+	 * @return the amount of time simulated so far, in ticks
+	 */
+	public double getTime(){
+		return time;
+	}
+
+	/**
+	 * @return the total number of collisions between objects resolved by this engine
+	 */
+	public long getObjectCollisions(){
+		return objectCollisions;
+	}
+
+	/**
+	 * @return the total number of collisions with the walls resolved by this engine
+	 */
+	public long getWallCollisions(){
+		return wallCollisions;
+	}
+
+	/**
+	 * Changes the size of the field. All predictions are discarded and made again.
+	 * @param halfWidth half the width of the field
+	 * @param halfHeight half the height of the field
+	 */
+	public void setBounds(double halfWidth, double halfHeight){
+		if(collisions != null && halfWidth == this.halfWidth && halfHeight == this.halfHeight)
+			return;
+		this.halfWidth = halfWidth;
+		this.halfHeight = halfHeight;
+		collisions = new int[particles.count()];
+		events.clear();
+		for(int i = 0; i < particles.count(); i++)
+			predict(i);
+	}
+
+	/**
+	 * Advances the simulation by the given amount of time, resolving every collision at the moment it takes place.
+	 * @param dt the amount of time to advance by, in ticks
+	 */
+	public void advance(double dt){
+		advance(dt, null);
+	}
+
+	/**
+	 * Advances the simulation by the given amount of time, recording the momentum transferred to each wall.
+	 * @param dt the amount of time to advance by, in ticks
+	 * @param impulses the accumulator to add the impulse of each collision with a wall to, or {@code null} if it is not needed
+	 */
+	void advance(double dt, WallImpulse impulses){
+		final double end = time + dt;
+		while(!events.isEmpty() && events.peek().time <= end){
+			final Event e = events.poll();
+			if(collisions[e.a] != e.countA)
+				continue; // superseded by a later prediction for the same object
+			if(e.b >= 0 && collisions[e.b] != e.countB){
+				predict(e.a); // the partner has changed course, so this object needs a new prediction
+				continue;
+			}
+			moveTo(e.time);
+			if(e.b == VERTICAL_WALL){
+				if(impulses != null)
+					impulses.add(particles.vx[e.a] > 0 ? WallImpulse.RIGHT : WallImpulse.LEFT, 2*particles.mass[e.a]*Math.abs(particles.vx[e.a]));
+				particles.vx[e.a] *= -1;
+				wallCollisions++;
+			}else if(e.b == HORIZONTAL_WALL){
+				if(impulses != null)
+					impulses.add(particles.vy[e.a] > 0 ? WallImpulse.BOTTOM : WallImpulse.TOP, 2*particles.mass[e.a]*Math.abs(particles.vy[e.a]));
+				particles.vy[e.a] *= -1;
+				wallCollisions++;
+			}else{
+				bounce(e.a, e.b);
+				collisions[e.b]++;
+				predict(e.b);
+			}
+			collisions[e.a]++;
+			predict(e.a);
+		}
+		moveTo(end);
+	}
+
+	/**
+	 * Moves every object along its current velocity up to the given time.
+	 */
+	private void moveTo(double t){
+		final double dt = t - time;
+		final double[] x = particles.x, y = particles.y, vx = particles.vx, vy = particles.vy;
+		for(int i = 0; i < particles.count(); i++){
+			x[i] += vx[i]*dt;
+			y[i] += vy[i]*dt;
+		}
+		time = t;
+	}
+
+	/**
+	 * Finds the earliest collision of an object with any other object or wall, and adds it to the queue.
+	 */
+	private void predict(int i){
+		final ParticleStore p = particles;
+		double first = Double.POSITIVE_INFINITY;
+		int partner = 0;
+		for(int j = 0; j < p.count(); j++){
+			if(j == i)
+				continue;
+			final double t = timeToHit(i, j);
+			if(t < first){
+				first = t;
+				partner = j;
+			}
+		}
+		final double vertical = timeToHitWall(p.x[i], p.vx[i], p.size[i], halfWidth);
+		if(vertical < first){
+			first = vertical;
+			partner = VERTICAL_WALL;
+		}
+		final double horizontal = timeToHitWall(p.y[i], p.vy[i], p.size[i], halfHeight);
+		if(horizontal < first){
+			first = horizontal;
+			partner = HORIZONTAL_WALL;
+		}
+		if(first < Double.POSITIVE_INFINITY)
+			events.add(new Event(time + first, i, partner, collisions[i], partner >= 0 ? collisions[partner] : 0));
+	}
+
+	/**
+	 * @return the time from now until two objects touch, 0 if they already overlap and are approaching, or infinity if they never touch
+	 */
+	private double timeToHit(int i, int j){
+		final ParticleStore p = particles;
+		final double dx = p.x[j]-p.x[i], dy = p.y[j]-p.y[i], dvx = p.vx[j]-p.vx[i], dvy = p.vy[j]-p.vy[i];
+		final double dvdr = dx*dvx + dy*dvy;
+		if(dvdr >= 0)
+			return Double.POSITIVE_INFINITY; // separating
+		final double dvdv = dvx*dvx + dvy*dvy, drdr = dx*dx + dy*dy, sigma = p.size[i]+p.size[j];
+		final double d = dvdr*dvdr - dvdv*(drdr - sigma*sigma);
+		if(d < 0)
+			return Double.POSITIVE_INFINITY; // passing each other
+		return Math.max(0, -(dvdr + Math.sqrt(d))/dvdv);
+	}
+
+	/**
+	 * @return the time from now until an object moving along one axis touches a wall, or infinity if it is not moving along that axis
+	 */
+	private static double timeToHitWall(double position, double velocity, int size, double half){
+		if(velocity > 0)
+			return Math.max(0, (half - size - position)/velocity);
+		if(velocity < 0)
+			return Math.max(0, (size - half - position)/velocity);
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Resolves an elastic collision between two touching objects, by applying equal and opposite impulses along the line between their centers.
+	 */
+	private void bounce(int i, int j){
+		final ParticleStore p = particles;
+		final double dx = p.x[j]-p.x[i], dy = p.y[j]-p.y[i], dvx = p.vx[j]-p.vx[i], dvy = p.vy[j]-p.vy[i];
+		final double distance = Math.sqrt(dx*dx + dy*dy);
+		if(distance == 0)
+			return;
+		final double m1 = p.mass[i], m2 = p.mass[j];
+		final double impulse = 2*m1*m2*(dx*dvx + dy*dvy)/((m1+m2)*distance);
+		final double ix = impulse*dx/distance, iy = impulse*dy/distance;
+		p.vx[i] += ix/m1;
+		p.vy[i] += iy/m1;
+		p.vx[j] -= ix/m2;
+		p.vy[j] -= iy/m2;
+		objectCollisions++;
+	}
+
+	/**
+	 * A predicted collision of object {@code a} with object {@code b}, or with a wall if {@code b} is negative.
+	 */
+	private static final class Event implements Comparable<Event> {
+
+		final double time;
+		final int a, b, countA, countB;
+
+		Event(double time, int a, int b, int countA, int countB){
+			this.time = time;
+			this.a = a;
+			this.b = b;
+			this.countA = countA;
+			this.countB = countB;
+		}
+
+		@Override
+		public int compareTo(Event e){
+			return Double.compare(time, e.time);
+		}
+
+	}
+
+}
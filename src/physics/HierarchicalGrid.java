@@ -0,0 +1,201 @@
+package physics;
+
+import objects.ParticleStore;
+
+import java.util.Arrays;
+
+/**
+ * A {@code BroadPhase} for objects of very different sizes, made of several uniform grids whose cell sizes double from one level to the next.
+ * The smallest cells are the diameter of the smallest object, and each object is binned at the first level whose cells are at least its diameter,
+ * so a large {@code Ball} never forces its cell size onto the many small {@code GasParticle}s around it.
+ * <p>
+ * Pairs within a level are found as in a {@code UniformGrid}.
+ * Pairs across levels are found from the smaller object, by looking up the cells around it at each coarser level;
+ * since those cells are at least the diameter of the larger object, two objects that touch can never be more than one cell apart there either.
+ * @author Wei Liang
+ */
+public final class HierarchicalGrid implements BroadPhase {
+
+	/**
+	 * Offsets of the neighbouring cells visited from each cell within a level, as in a {@code UniformGrid}.
+	 */
+	private static final int[] NEIGHBOUR_COLUMNS = {1, -1, 0, 1}, NEIGHBOUR_ROWS = {0, 1, 1, 1};
+
+	private Level[] levels = new Level[0];
+	private int[] levelOf = new int[0];
+	private double minX, minY;
+
+	@Override
+	public int computeCollisions(ParticleStore particles, double dt){
+		final int n = particles.count();
+		if(n == 0)
+			return 0;
+		build(particles);
+		int collisions = 0;
+		for(int l = 0; l < levels.length; l++){
+			final Level level = levels[l];
+			if(level.count == 0)
+				continue;
+			collisions += level.computeCollisions(particles, dt);
+			for(int k = 0; k < level.count; k++){
+				final int i = level.members[k];
+				for(int coarser = l+1; coarser < levels.length; coarser++)
+					if(levels[coarser].count > 0)
+						collisions += levels[coarser].computeCollisions(particles, i, minX, minY, dt);
+			}
+		}
+		return collisions;
+	}
+
+	/**
+	 * Assigns every object to a level, then bins the objects of each level into its cells.
+	 */
+	private void build(ParticleStore particles){
+		final int n = particles.count();
+		final double[] x = particles.x, y = particles.y;
+		final int[] size = particles.size;
+		int smallest = Integer.MAX_VALUE, largest = 1;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		minX = minY = Double.POSITIVE_INFINITY;
+		for(int i = 0; i < n; i++){
+			smallest = Math.min(smallest, size[i]);
+			largest = Math.max(largest, size[i]);
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		final double baseCell = 2*Math.max(smallest, 1);
+		final int levelCount = getLevel(2*largest, baseCell) + 1;
+		if(levels.length != levelCount){
+			levels = new Level[levelCount];
+			for(int l = 0; l < levelCount; l++)
+				levels[l] = new Level();
+		}
+		if(levelOf.length < n)
+			levelOf = new int[n];
+		for(Level level: levels)
+			level.count = 0;
+		for(int i = 0; i < n; i++){
+			levelOf[i] = getLevel(2*size[i], baseCell);
+			levels[levelOf[i]].count++;
+		}
+		for(Level level: levels)
+			level.reserve();
+		for(int i = 0; i < n; i++){
+			final Level level = levels[levelOf[i]];
+			level.members[level.filled++] = i;
+		}
+		for(int l = 0; l < levelCount; l++)
+			levels[l].build(particles, baseCell*(1 << l), minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * @return the first level whose cells are at least the given diameter
+	 */
+	private static int getLevel(double diameter, double baseCell){
+		int level = 0;
+		while(baseCell*(1 << level) < diameter)
+			level++;
+		return level;
+	}
+
+	/**
+	 * One uniform grid, holding only the objects binned at its level.
+	 */
+	private static final class Level {
+
+		int count, filled;
+		int[] members = new int[0];		// the indices of the objects at this level
+		int[] cellOf = new int[0];		// the cell of each member
+		int[] cellStart = new int[1];	// the first index into sorted of each cell, followed by one sentinel
+		int[] sorted = new int[0];		// the indices of the members, ordered by cell
+		int columns, rows;
+		double cellSize;
+
+		void reserve(){
+			filled = 0;
+			if(members.length < count){
+				members = new int[count];
+				cellOf = new int[count];
+				sorted = new int[count];
+			}
+		}
+
+		void build(ParticleStore particles, double nominalCellSize, double minX, double minY, double maxX, double maxY){
+			if(count == 0){
+				columns = rows = 0;
+				return;
+			}
+			cellSize = nominalCellSize;
+			// larger cells are always safe, so enlarge them rather than allocate many more cells than members
+			final double maxCells = 4.0*count + 16;
+			while(((maxX-minX)/cellSize + 1)*((maxY-minY)/cellSize + 1) > maxCells)
+				cellSize *= 2;
+			columns = (int) ((maxX-minX)/cellSize) + 1;
+			rows = (int) ((maxY-minY)/cellSize) + 1;
+
+			final int cells = columns*rows;
+			if(cellStart.length < cells+1)
+				cellStart = new int[cells+1];
+			Arrays.fill(cellStart, 0, cells+1, 0);
+			for(int k = 0; k < count; k++){
+				final int i = members[k];
+				final int cell = (int) ((particles.y[i]-minY)/cellSize)*columns + (int) ((particles.x[i]-minX)/cellSize);
+				cellOf[k] = cell;
+				cellStart[cell+1]++;
+			}
+			for(int cell = 0; cell < cells; cell++)
+				cellStart[cell+1] += cellStart[cell];
+			for(int k = 0; k < count; k++)
+				sorted[cellStart[cellOf[k]]++] = members[k];
+			for(int cell = cells; cell > 0; cell--)
+				cellStart[cell] = cellStart[cell-1];
+			cellStart[0] = 0;
+		}
+
+		/**
+		 * Resolves all pairs of members in the same or adjacent cells.
+		 */
+		int computeCollisions(ParticleStore particles, double dt){
+			int collisions = 0;
+			for(int row = 0; row < rows; row++)
+				for(int column = 0; column < columns; column++){
+					final int cell = row*columns + column;
+					for(int a = cellStart[cell]; a < cellStart[cell+1]; a++)
+						for(int b = a+1; b < cellStart[cell+1]; b++)
+							if(CollisionEngine.computePossibleCollision(particles, sorted[a], sorted[b], dt))
+								collisions++;
+					for(int k = 0; k < NEIGHBOUR_COLUMNS.length; k++){
+						final int c = column + NEIGHBOUR_COLUMNS[k], r = row + NEIGHBOUR_ROWS[k];
+						if(c < 0 || c >= columns || r >= rows)
+							continue;
+						final int other = r*columns + c;
+						for(int a = cellStart[cell]; a < cellStart[cell+1]; a++)
+							for(int b = cellStart[other]; b < cellStart[other+1]; b++)
+								if(CollisionEngine.computePossibleCollision(particles, sorted[a], sorted[b], dt))
+									collisions++;
+					}
+				}
+			return collisions;
+		}
+
+		/**
+		 * Resolves all pairs of an object from a finer level with the members in the cells around it.
+		 */
+		int computeCollisions(ParticleStore particles, int i, double minX, double minY, double dt){
+			final int column = (int) ((particles.x[i]-minX)/cellSize), row = (int) ((particles.y[i]-minY)/cellSize);
+			int collisions = 0;
+			for(int r = Math.max(row-1, 0); r <= Math.min(row+1, rows-1); r++)
+				for(int c = Math.max(column-1, 0); c <= Math.min(column+1, columns-1); c++){
+					final int cell = r*columns + c;
+					for(int b = cellStart[cell]; b < cellStart[cell+1]; b++)
+						if(CollisionEngine.computePossibleCollision(particles, i, sorted[b], dt))
+							collisions++;
+				}
+			return collisions;
+		}
+
+	}
+
+}
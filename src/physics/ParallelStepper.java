@@ -0,0 +1,126 @@
+package physics;
+
+import objects.ParticleStore;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Advances a whole store by one tick, spreading the work over a {@code ForkJoinPool}.
+ * Moving and wall collisions only ever touch one object at a time, so the store is simply split into ranges of objects.
+ * Collisions between objects are resolved through a {@code UniformGrid}, whose strips never share an object within a phase.
+ * The results are exactly those of moving the store, resolving collisions with a {@code UniformGrid}, and then resolving wall collisions on a single thread,
+ * regardless of the number of threads.
+ * @author Wei Liang
+ */
+public final class ParallelStepper {
+
+	/**
+	 * The number of objects below which a range is no longer split.
+	 */
+	private static final int THRESHOLD = 8192;
+
+	private final ForkJoinPool pool;
+	private final UniformGrid grid = new UniformGrid();
+	private final AtomicLong wallCollisions = new AtomicLong();
+	private long objectCollisions;
+
+	/**
+	 * @param parallelism the number of worker threads to use
+	 */
+	public ParallelStepper(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Advances every object in the store forward in time, and resolves any resulting collisions.
+	 * @param particles the store to advance
+	 * @param dt the length of time to move for, where 1 is one full step
+	 * @param continuous whether collisions should be resolved at the moment of contact within {@code dt}, rather than where the objects end up
+	 * @param halfWidth half the width of the field, since the origin is at its center
+	 * @param halfHeight half the height of the field
+	 * @param reduction the totals to add every object to once the step is complete, or {@code null} if none are needed
+	 * @param impulses the accumulator to add the impulse on each wall to, or {@code null} if it is not needed
+	 */
+	public void step(ParticleStore particles, double dt, boolean continuous, double halfWidth, double halfHeight, Reduction reduction, WallImpulse impulses){
+		final double sweep = continuous ? dt : 0;
+		pool.invoke(new RangeTask(particles, 0, particles.count(), false, dt, halfWidth, halfHeight, null, null));
+		objectCollisions += grid.computeCollisions(particles, sweep, pool);
+		pool.invoke(new RangeTask(particles, 0, particles.count(), true, sweep, halfWidth, halfHeight, reduction, impulses));
+	}
+
+	/**
+	 * @return the total number of collisions between objects resolved by this stepper
+	 */
+	public long getObjectCollisions(){
+		return objectCollisions;
+	}
+
+	/**
+	 * @return the total number of collisions with the walls resolved by this stepper
+	 */
+	public long getWallCollisions(){
+		return wallCollisions.get();
+	}
+
+	/**
+	 * Stops the worker threads. The stepper should not be used afterwards.
+	 */
+	public void shutdown(){
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Either moves the objects in a range of indices, or resolves their collisions with the walls.
+	 * {@code dt} is the time to move for in the first case, and the time swept for collisions in the second.
+	 * In the second case, the objects may also be added to a set of totals and their impulses on the walls recorded, which each half of a split range gathers separately.
+	 */
+	private final class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 2335436931566311357L;
+
+		private final ParticleStore particles;
+		private final int from, to;
+		private final boolean walls;
+		private final double dt, halfWidth, halfHeight;
+		private final Reduction reduction;
+		private final WallImpulse impulses;
+
+		RangeTask(ParticleStore particles, int from, int to, boolean walls, double dt, double halfWidth, double halfHeight, Reduction reduction, WallImpulse impulses){
+			this.particles = particles;
+			this.from = from;
+			this.to = to;
+			this.walls = walls;
+			this.dt = dt;
+			this.halfWidth = halfWidth;
+			this.halfHeight = halfHeight;
+			this.reduction = reduction;
+			this.impulses = impulses;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from > THRESHOLD){
+				final int middle = (from + to) >>> 1;
+				final Reduction left = reduction == null ? null : new Reduction(), right = reduction == null ? null : new Reduction();
+				final WallImpulse leftImpulses = impulses == null ? null : new WallImpulse(), rightImpulses = impulses == null ? null : new WallImpulse();
+				invokeAll(new RangeTask(particles, from, middle, walls, dt, halfWidth, halfHeight, left, leftImpulses),
+						new RangeTask(particles, middle, to, walls, dt, halfWidth, halfHeight, right, rightImpulses));
+				if(reduction != null){
+					reduction.merge(left);
+					reduction.merge(right);
+				}
+				if(impulses != null){
+					impulses.merge(leftImpulses);
+					impulses.merge(rightImpulses);
+				}
+			}else if(walls)
+				wallCollisions.addAndGet(CollisionEngine.computeWallCollisions(particles, from, to, halfWidth, halfHeight, dt, reduction, impulses));
+			else
+				particles.move(from, to, dt);
+		}
+
+	}
+
+}
@@ -12,16 +12,17 @@ public final class PhysicsUtility {
 	
 	/**
 	 * Adds up the momentum of several objects.
+	 * For every object in a {@code World}, {@code World.getReduction()} already holds the total.
 	 * @param objects The {@code Thing}s to be added.
 	 * @return The {@code PhysicsVector} representing the resultant momentum.
 	 */
 	public static final PhysicsVector momentumSum(Thing... objects){
-		PhysicsVector result = new PhysicsVector(0, 0);
+		double x = 0, y = 0;
 		for(Thing t: objects){
-			result = result.add(t.getMomentumVector());
+			x += t.getVelocityX()*t.getMass();
+			y += t.getVelocityY()*t.getMass();
 		}
-			
-		return result;
+		return new PhysicsVector(x, y);
 	}
 	
 }
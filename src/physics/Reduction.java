@@ -0,0 +1,117 @@
+package physics;
+
+import objects.ParticleStore;
+
+/**
+ * Totals over every object in a store, all gathered in a single pass: the average speed, the kinetic energy, the momentum and the temperature.
+ * A {@code World} gathers these while it resolves collisions with the walls, which already visits every object once per tick,
+ * and publishes them once the tick is complete, so that any number of trackers can read them without another pass over the objects.
+ * <p>
+ * A reduction is only modified while it is being gathered; once published, it never changes.
+ * @author Wei Liang
+ */
+public final class Reduction {
+
+	/**
+	 * The totals of an empty store.
+	 */
+	public static final Reduction EMPTY = new Reduction();
+
+	private int count;
+	private double speedSum, kineticEnergy, momentumX, momentumY, mass;
+
+	/**
+	 * Creates empty totals, to be gathered by the {@code physics} package.
+	 */
+	Reduction(){}
+
+	/**
+	 * Gathers the totals over every object in a store, in a pass of its own, such as before a {@code World} has published any.
+	 * @param p the store holding the objects
+	 * @return the totals
+	 */
+	public static Reduction of(ParticleStore p){
+		final Reduction r = new Reduction();
+		r.add(p, 0, p.count());
+		return r;
+	}
+
+	/**
+	 * Adds one object to the totals.
+	 * @param p the store holding the object
+	 * @param i the index of the object
+	 */
+	void add(ParticleStore p, int i){
+		final double vx = p.vx[i], vy = p.vy[i], m = p.mass[i], squaredSpeed = vx*vx + vy*vy;
+		count++;
+		speedSum += Math.sqrt(squaredSpeed);
+		kineticEnergy += m*squaredSpeed/2;
+		momentumX += m*vx;
+		momentumY += m*vy;
+		mass += m;
+	}
+
+	/**
+	 * Adds the objects in a range of indices to the totals.
+	 * @param p the store holding the objects
+	 * @param from the first index (inclusive)
+	 * @param to the last index (exclusive)
+	 */
+	void add(ParticleStore p, int from, int to){
+		for(int i = from; i < to; i++)
+			add(p, i);
+	}
+
+	/**
+	 * Adds the totals of another set of objects to these, when the objects have been split into ranges.
+	 * @param other the totals of the other objects
+	 */
+	void merge(Reduction other){
+		count += other.count;
+		speedSum += other.speedSum;
+		kineticEnergy += other.kineticEnergy;
+		momentumX += other.momentumX;
+		momentumY += other.momentumY;
+		mass += other.mass;
+	}
+
+	/**
+	 * @return the number of objects
+	 */
+	public int getCount(){
+		return count;
+	}
+
+	/**
+	 * @return the average speed of the objects, or 0 if there are none
+	 */
+	public double getAverageSpeed(){
+		return count == 0 ? 0 : speedSum/count;
+	}
+
+	/**
+	 * @return the total kinetic energy of the objects
+	 */
+	public double getKineticEnergy(){
+		return kineticEnergy;
+	}
+
+	/**
+	 * @return the total momentum of the objects
+	 */
+	public PhysicsVector getMomentumVector(){
+		return new PhysicsVector(momentumX, momentumY);
+	}
+
+	/**
+	 * The temperature is the average kinetic energy per object, leaving out the motion of the center of mass,
+	 * in units where Boltzmann's constant is 1; in two dimensions, this is the average kinetic energy of the random motion of each object.
+	 * @return the temperature of the objects, or 0 if there are none
+	 */
+	public double getTemperature(){
+		if(count == 0 || mass == 0)
+			return 0;
+		return (kineticEnergy - (momentumX*momentumX + momentumY*momentumY)/(2*mass))/count;
+	}
+
+}
@@ -0,0 +1,80 @@
+package physics;
+
+import objects.ParticleStore;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bins the speeds of the objects in a store into a histogram.
+ * Large stores are split into ranges that are binned in parallel, each into its own histogram, and the histograms are added together as the ranges are joined,
+ * so no two threads ever write to the same histogram.
+ * @author Wei Liang
+ */
+public final class SpeedDistribution {
+
+	/**
+	 * The number of objects below which a range is no longer split.
+	 */
+	private static final int THRESHOLD = 16384;
+
+	private SpeedDistribution() {}
+
+	/**
+	 * Bins the speeds of every object in a store, in bins of equal width from 0.
+	 * Speeds beyond the last bin are counted in the last bin.
+	 * The store should not be modified meanwhile, although a value read in the middle of a tick only misplaces that object.
+	 * @param particles the store holding the objects
+	 * @param maxSpeed the upper edge of the last bin
+	 * @param bins the number of bins
+	 * @return the number of objects in each bin
+	 */
+	public static long[] compute(ParticleStore particles, double maxSpeed, int bins){
+		if(bins <= 0 || !(maxSpeed > 0))
+			throw new IllegalArgumentException("There must be at least one bin of positive width!");
+		final BinTask task = new BinTask(particles, 0, particles.count(), bins/maxSpeed, bins);
+		return particles.count() > THRESHOLD ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+	}
+
+	/**
+	 * Bins the objects in a range of indices.
+	 */
+	private static final class BinTask extends RecursiveTask<long[]> {
+
+		private static final long serialVersionUID = 3371843598102557418L;
+
+		private final ParticleStore particles;
+		private final int from, to, bins;
+		private final double binsPerSpeed;
+
+		BinTask(ParticleStore particles, int from, int to, double binsPerSpeed, int bins){
+			this.particles = particles;
+			this.from = from;
+			this.to = to;
+			this.binsPerSpeed = binsPerSpeed;
+			this.bins = bins;
+		}
+
+		@Override
+		protected long[] compute(){
+			if(to - from > THRESHOLD){
+				final int middle = (from + to) >>> 1;
+				final BinTask right = new BinTask(particles, middle, to, binsPerSpeed, bins);
+				right.fork();
+				final long[] counts = new BinTask(particles, from, middle, binsPerSpeed, bins).compute(), other = right.join();
+				for(int b = 0; b < bins; b++)
+					counts[b] += other[b];
+				return counts;
+			}
+			final long[] counts = new long[bins];
+			final double[] vx = particles.vx, vy = particles.vy;
+			for(int i = from; i < to; i++){
+				final int b = (int) (Math.sqrt(vx[i]*vx[i] + vy[i]*vy[i])*binsPerSpeed);
+				counts[Math.min(b, bins-1)]++;
+			}
+			return counts;
+		}
+
+	}
+
+}
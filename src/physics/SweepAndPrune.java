@@ -0,0 +1,108 @@
+package physics;
+
+import objects.ParticleStore;
+
+/**
+ * A {@code BroadPhase} that keeps the objects sorted by the lower edge of their extent along one axis,
+ * and only tests pairs whose extents along that axis overlap.
+ * <p>
+ * Objects move very little between ticks, so the order from the previous tick is almost sorted already,
+ * and an insertion sort restores it in close to linear time.
+ * This works best when the objects are spread out along the sweep axis, as in a row of balls,
+ * so the axis along which the objects are more spread out is chosen whenever the order is rebuilt.
+ * @author Wei Liang
+ */
+public final class SweepAndPrune implements BroadPhase {
+
+	private int[] order = new int[0];		// the indices of all objects, sorted by the lower edge of their extent
+	private double[] lower = new double[0];	// the lower edge of the extent of each object, in the same order
+	private int[] buffer = new int[0];		// scratch space when the order is rebuilt
+	private int count;
+	private boolean vertical;
+
+	@Override
+	public int computeCollisions(ParticleStore particles, double dt){
+		if(particles.count() != count)
+			rebuild(particles);
+		final double[] position = vertical ? particles.y : particles.x, across = vertical ? particles.x : particles.y;
+		final int[] size = particles.size;
+
+		// refresh the keys, then restore the order
+		for(int k = 0; k < count; k++)
+			lower[k] = position[order[k]] - size[order[k]];
+		for(int k = 1; k < count; k++){
+			final int index = order[k];
+			final double key = lower[k];
+			int m = k - 1;
+			while(m >= 0 && lower[m] > key){
+				order[m+1] = order[m];
+				lower[m+1] = lower[m];
+				m--;
+			}
+			order[m+1] = index;
+			lower[m+1] = key;
+		}
+
+		// sweep
+		int collisions = 0;
+		for(int k = 0; k < count; k++){
+			final int i = order[k];
+			final double upper = position[i] + size[i];
+			for(int m = k+1; m < count && lower[m] <= upper; m++){
+				final int j = order[m];
+				if(Math.abs(across[i] - across[j]) <= size[i] + size[j]
+						&& CollisionEngine.computePossibleCollision(particles, i, j, dt))
+					collisions++;
+			}
+		}
+		return collisions;
+	}
+
+	/**
+	 * Chooses the sweep axis and sorts every object from scratch, when objects have been added or removed.
+	 */
+	private void rebuild(ParticleStore particles){
+		count = particles.count();
+		if(order.length < count){
+			order = new int[count];
+			lower = new double[count];
+			buffer = new int[count];
+		}
+		vertical = getVariance(particles.y, count) > getVariance(particles.x, count);
+		final double[] position = vertical ? particles.y : particles.x;
+		for(int i = 0; i < count; i++){
+			order[i] = i;
+			lower[i] = position[i] - particles.size[i];
+		}
+		mergeSort(0, count);
+		// from now on, the keys are kept in sorted order instead; they are refreshed before they are next used
+	}
+
+	/**
+	 * Sorts {@code order} in a range by the key of each index in {@code lower}, which is indexed by object rather than by position here.
+	 */
+	private void mergeSort(int from, int to){
+		if(to - from < 2)
+			return;
+		final int middle = (from + to) >>> 1;
+		mergeSort(from, middle);
+		mergeSort(middle, to);
+		int a = from, b = middle;
+		for(int k = from; k < to; k++)
+			if(b >= to || (a < middle && lower[order[a]] <= lower[order[b]]))
+				buffer[k] = order[a++];
+			else
+				buffer[k] = order[b++];
+		System.arraycopy(buffer, from, order, from, to - from);
+	}
+
+	private static double getVariance(double[] values, int n){
+		double sum = 0, squares = 0;
+		for(int i = 0; i < n; i++){
+			sum += values[i];
+			squares += values[i]*values[i];
+		}
+		return n == 0 ? 0 : squares/n - (sum/n)*(sum/n);
+	}
+
+}
@@ -0,0 +1,224 @@
+package physics;
+
+import objects.ParticleStore;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@code BroadPhase} that bins objects into a uniform grid of square cells,
+ * so that only objects in the same or neighbouring cells are passed on to the narrow phase in {@code CollisionEngine}.
+ * The cell size is the diameter of the largest object, so two colliding objects can never be more than one cell apart.
+ * The grid is rebuilt at every tick; its arrays are kept and reused between ticks.
+ * <p>
+ * Cells are visited in vertical strips of {@code STRIP_COLUMNS} columns: first every even strip, then every odd strip.
+ * Pairs found from one strip only involve cells in that strip and the columns on either side of it,
+ * so no two strips of the same parity ever touch the same object, and they can be resolved in parallel.
+ * Since the order is the same whether or not a pool is used, both give exactly the same results.
+ * @author Wei Liang
+ */
+public final class UniformGrid implements BroadPhase {
+
+	/**
+	 * Offsets of the neighbouring cells visited from each cell.
+	 * Only half of the 8 neighbours are visited, so that each unordered pair of cells (and therefore of objects) is seen exactly once.
+	 */
+	private static final int[] NEIGHBOUR_COLUMNS = {1, -1, 0, 1}, NEIGHBOUR_ROWS = {0, 1, 1, 1};
+
+	private static final int STRIP_COLUMNS = 2;
+
+	private int[] cellOf = new int[0];		// the cell of each object
+	private int[] cellStart = new int[1];	// the first index into sorted of each cell, followed by one sentinel
+	private int[] sorted = new int[0];		// the indices of all objects, ordered by cell
+	private int[] stripCollisions = new int[0];	// the number of collisions found from each strip, when run in parallel
+	private int columns, rows;
+
+	/**
+	 * Detects and resolves collisions between all pairs of objects that lie in the same or adjacent cells.
+	 * @param particles the store holding the state of the objects
+	 * @return the number of collisions that took place
+	 */
+	@Override
+	public int computeCollisions(ParticleStore particles, double dt){
+		build(particles);
+		final int strips = getStripCount();
+		int collisions = 0;
+		for(int phase = 0; phase < 2; phase++)
+			for(int strip = phase; strip < strips; strip += 2)
+				collisions += computeStrip(particles, strip, dt);
+		return collisions;
+	}
+
+	/**
+	 * Detects and resolves collisions between all pairs of objects that lie in the same or adjacent cells,
+	 * spreading the strips of each parity over the given pool.
+	 * The results are identical to those of {@code computeCollisions(ParticleStore, double)}.
+	 * @param particles the store holding the state of the objects
+	 * @param dt the time the objects have moved for since they were last checked, or 0 to resolve collisions where the objects are now
+	 * @param pool the pool to run on
+	 * @return the number of collisions that took place
+	 */
+	public int computeCollisions(ParticleStore particles, double dt, ForkJoinPool pool){
+		build(particles);
+		final int strips = getStripCount();
+		if(stripCollisions.length < strips)
+			stripCollisions = new int[strips];
+		for(int phase = 0; phase < 2; phase++)
+			pool.invoke(new StripTask(particles, dt, phase, 0, (strips - phase + 1)/2));
+		int collisions = 0;
+		for(int strip = 0; strip < strips; strip++)
+			collisions += stripCollisions[strip];
+		return collisions;
+	}
+
+	private int getStripCount(){
+		return (columns + STRIP_COLUMNS - 1)/STRIP_COLUMNS;
+	}
+
+	/**
+	 * Resolves all pairs found from the cells of one strip.
+	 * @return the number of collisions that took place
+	 */
+	private int computeStrip(ParticleStore particles, int strip, double dt){
+		int collisions = 0;
+		final int first = strip*STRIP_COLUMNS, last = Math.min(first + STRIP_COLUMNS, columns);
+		for(int row = 0; row < rows; row++)
+			for(int column = first; column < last; column++){
+				final int cell = row*columns + column;
+				for(int a = cellStart[cell]; a < cellStart[cell+1]; a++)
+					for(int b = a+1; b < cellStart[cell+1]; b++)
+						if(CollisionEngine.computePossibleCollision(particles, sorted[a], sorted[b], dt))
+							collisions++;
+				for(int k = 0; k < NEIGHBOUR_COLUMNS.length; k++){
+					final int c = column + NEIGHBOUR_COLUMNS[k], r = row + NEIGHBOUR_ROWS[k];
+					if(c < 0 || c >= columns || r >= rows)
+						continue;
+					final int other = r*columns + c;
+					for(int a = cellStart[cell]; a < cellStart[cell+1]; a++)
+						for(int b = cellStart[other]; b < cellStart[other+1]; b++)
+							if(CollisionEngine.computePossibleCollision(particles, sorted[a], sorted[b], dt))
+								collisions++;
+				}
+			}
+		return collisions;
+	}
+
+	/**
+	 * Resolves the strips {@code phase}, {@code phase+2}, ... numbered from {@code from} (inclusive) to {@code to} (exclusive),
+	 * splitting the range in half until each task has a single strip.
+	 */
+	private final class StripTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -6106546424370913725L;
+
+		private final ParticleStore particles;
+		private final double dt;
+		private final int phase, from, to;
+
+		StripTask(ParticleStore particles, double dt, int phase, int from, int to){
+			this.particles = particles;
+			this.dt = dt;
+			this.phase = phase;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if(to - from <= 1){
+				if(from < to){
+					final int strip = phase + 2*from;
+					stripCollisions[strip] = computeStrip(particles, strip, dt);
+				}
+				return;
+			}
+			final int middle = (from + to) >>> 1;
+			invokeAll(new StripTask(particles, dt, phase, from, middle), new StripTask(particles, dt, phase, middle, to));
+		}
+
+	}
+
+	/**
+	 * Finds, for each object in a range of indices, the object in the same or a neighbouring cell that it is approaching fastest while overlapping,
+	 * as measured by {@code CollisionEngine.getApproachSpeed()}; ties go to the lower index.
+	 * Unlike {@code computeCollisions()}, all 8 neighbours are visited, so that each object finds its partner by itself;
+	 * since the store is only read and only the range is written to in {@code partner}, ranges can be computed in any order or in parallel with identical results.
+	 * The grid must have been built from the same store first.
+	 * @param partner receives the index of the partner of each object, or -1 if it is not approaching any object
+	 */
+	void findPartners(ParticleStore particles, int[] partner, int from, int to){
+		for(int i = from; i < to; i++){
+			final int column = cellOf[i] % columns, row = cellOf[i] / columns;
+			double fastest = 0;
+			int best = -1;
+			for(int r = Math.max(row-1, 0); r <= Math.min(row+1, rows-1); r++)
+				for(int c = Math.max(column-1, 0); c <= Math.min(column+1, columns-1); c++){
+					final int cell = r*columns + c;
+					for(int b = cellStart[cell]; b < cellStart[cell+1]; b++){
+						final int j = sorted[b];
+						if(j == i)
+							continue;
+						final double speed = CollisionEngine.getApproachSpeed(particles, i, j);
+						if(speed > fastest || (speed == fastest && speed > 0 && j < best)){
+							fastest = speed;
+							best = j;
+						}
+					}
+				}
+			partner[i] = best;
+		}
+	}
+
+	/**
+	 * Bins all objects into cells with a counting sort.
+	 * The grid only spans the bounding box of the objects, and its cells are enlarged if necessary so that there are never many more cells than objects.
+	 */
+	void build(ParticleStore particles){
+		final int n = particles.count();
+		final double[] x = particles.x, y = particles.y;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		int maxSize = 1;
+		for(int i = 0; i < n; i++){
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+			maxSize = Math.max(maxSize, particles.size[i]);
+		}
+		if(n == 0){
+			columns = rows = 0;
+			return;
+		}
+		double cellSize = 2*maxSize;
+		final double maxCells = 4.0*n + 16;
+		while(((maxX-minX)/cellSize + 1)*((maxY-minY)/cellSize + 1) > maxCells)
+			cellSize *= 2;
+		columns = (int) ((maxX-minX)/cellSize) + 1;
+		rows = (int) ((maxY-minY)/cellSize) + 1;
+
+		final int cells = columns*rows;
+		if(cellStart.length < cells+1)
+			cellStart = new int[cells+1];
+		if(cellOf.length < n){
+			cellOf = new int[n];
+			sorted = new int[n];
+		}
+		Arrays.fill(cellStart, 0, cells+1, 0);
+		for(int i = 0; i < n; i++){
+			final int cell = (int) ((y[i]-minY)/cellSize)*columns + (int) ((x[i]-minX)/cellSize);
+			cellOf[i] = cell;
+			cellStart[cell+1]++;
+		}
+		for(int cell = 0; cell < cells; cell++)
+			cellStart[cell+1] += cellStart[cell];
+		// cellStart[cell] is used as an insertion cursor, then shifted back afterwards
+		for(int i = 0; i < n; i++)
+			sorted[cellStart[cellOf[i]]++] = i;
+		for(int cell = cells; cell > 0; cell--)
+			cellStart[cell] = cellStart[cell-1];
+		cellStart[0] = 0;
+	}
+
+}
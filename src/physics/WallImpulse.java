@@ -0,0 +1,94 @@
+package physics;
+
+/**
+ * The momentum transferred to each of the four walls by the objects bouncing off them.
+ * While a tick is computed, the impulses are gathered separately for each range of objects and added together at the end, so that no two threads share an accumulator.
+ * A {@code World} then publishes the running totals since it was created, along with the number of ticks and the amount of time simulated,
+ * so that the pressure on a wall over any period is the difference in its impulse divided by the difference in time and by the length of the wall.
+ * <p>
+ * An instance is only modified while it is being gathered; once published, it never changes.
+ * @author Wei Liang
+ */
+public final class WallImpulse {
+
+	/**
+	 * The index of each wall. The top wall is at the lowest vertical position, as on screen.
+	 */
+	public static final int TOP = 0, BOTTOM = 1, LEFT = 2, RIGHT = 3;
+
+	/**
+	 * No impulse on any wall, at tick 0 and time 0.
+	 */
+	public static final WallImpulse EMPTY = new WallImpulse();
+
+	private final double[] impulse = new double[4];
+	private long tick;
+	private double time;
+
+	/**
+	 * Creates an accumulator with no impulse on any wall, to be gathered by the {@code physics} package.
+	 */
+	WallImpulse(){}
+
+	/**
+	 * Adds the impulse of one collision.
+	 * @param wall the wall that was hit
+	 * @param amount the magnitude of the change in momentum of the object
+	 */
+	void add(int wall, double amount){
+		impulse[wall] += amount;
+	}
+
+	/**
+	 * Adds the impulses gathered by another accumulator to these.
+	 * @param other the other accumulator
+	 */
+	void merge(WallImpulse other){
+		for(int w = 0; w < impulse.length; w++)
+			impulse[w] += other.impulse[w];
+	}
+
+	/**
+	 * @param tick the impulses of one tick
+	 * @param dt the length of the tick
+	 * @return new running totals, made of these totals followed by the tick
+	 */
+	WallImpulse plus(WallImpulse tick, double dt){
+		final WallImpulse sum = new WallImpulse();
+		sum.merge(this);
+		sum.merge(tick);
+		sum.tick = this.tick + 1;
+		sum.time = time + dt;
+		return sum;
+	}
+
+	/**
+	 * @param wall the index of the wall
+	 * @return the total momentum transferred to the wall
+	 */
+	public double get(int wall){
+		return impulse[wall];
+	}
+
+	/**
+	 * @return the total momentum transferred to all four walls
+	 */
+	public double getTotal(){
+		return impulse[TOP] + impulse[BOTTOM] + impulse[LEFT] + impulse[RIGHT];
+	}
+
+	/**
+	 * @return the number of ticks simulated when these totals were published
+	 */
+	public long getTick(){
+		return tick;
+	}
+
+	/**
+	 * @return the amount of time simulated, in ticks of length 1, when these totals were published
+	 */
+	public double getTime(){
+		return time;
+	}
+
+}
@@ -0,0 +1,338 @@
+package physics;
+
+import objects.ParticleStore;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The simulation itself: a rectangular field with its origin at the center, and the objects inside it.
+ * A {@code World} has no dependency on the GUI, so it can be created and stepped on its own, for example on a server with no display.
+ * The GUI merely observes it through a {@code Listener}.
+ * <p>
+ * How each tick is computed can be chosen independently of the objects:
+ * either the objects are moved and then checked for overlaps (with any {@code BroadPhase}, or with a {@code UniformGrid} spread over several threads),
+ * or the collisions are predicted and resolved exactly by an {@code EventDrivenEngine}.
+ * In double-buffered mode, a {@code DoubleBufferedStepper} computes each tick purely from the previous one instead,
+ * so the results do not depend on the order of the objects or the number of threads.
+ * <p>
+ * Each tick advances the world by a fixed time step, independent of how often it is drawn.
+ * In continuous mode, a tick is split into as many substeps as it takes for no object to move further than its own radius in one,
+ * so that fast objects cannot pass through each other or through a wall between two checks,
+ * and every collision found is resolved at the moment of contact within its substep rather than where the objects ended up.
+ * @author Wei Liang
+ */
+public final class World {
+
+	/**
+	 * Receives a notification after every tick of a {@code World}.
+	 */
+	public interface Listener {
+		/**
+		 * Called on the thread that stepped the world, once the tick is complete.
+		 * @param world the world that was stepped
+		 * @param objectCollisions the number of collisions between objects during the tick
+		 * @param wallCollisions the number of collisions with the walls during the tick
+		 */
+		void ticked(World world, int objectCollisions, int wallCollisions);
+	}
+
+	private final ParticleStore particles;
+	private volatile double width, height;
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	// how each tick is computed
+	private BroadPhase broadPhase = new UniformGrid();
+	private int parallelism = 1;
+	private boolean eventDriven = false;
+	private boolean doubleBuffered = false;
+	private ParallelStepper stepper;
+	private DoubleBufferedStepper bufferedStepper;
+	private EventDrivenEngine eventEngine;
+	private double timeStep = 1;
+	private boolean continuous = false;
+
+	/**
+	 * The most substeps a tick is ever split into in continuous mode, however fast the objects are.
+	 */
+	public static final int MAX_SUBSTEPS = 64;
+
+	// totals
+	private long ticks, objectCollisions, wallCollisions;
+	private volatile Reduction reduction = Reduction.EMPTY;
+	private volatile WallImpulse impulses = WallImpulse.EMPTY;
+
+	/**
+	 * Creates an empty world.
+	 * @param width the width of the field
+	 * @param height the height of the field
+	 */
+	public World(double width, double height) {
+		this(new ParticleStore(16), width, height);
+	}
+
+	/**
+	 * Creates a world around an existing store of objects.
+	 * @param particles the objects in the world
+	 * @param width the width of the field
+	 * @param height the height of the field
+	 */
+	public World(ParticleStore particles, double width, double height) {
+		this.particles = particles;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @return the store holding the state of every object in the world
+	 */
+	public ParticleStore getParticles(){
+		return particles;
+	}
+
+	/**
+	 * @return the width of the field
+	 */
+	public double getWidth(){
+		return width;
+	}
+
+	/**
+	 * @return the height of the field
+	 */
+	public double getHeight(){
+		return height;
+	}
+
+	/**
+	 * Resizes the field. This may be called from any thread; it takes effect from the next tick.
+	 * @param width the new width of the field
+	 * @param height the new height of the field
+	 */
+	public void setBounds(double width, double height){
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @param broadPhase the strategy used to find the pairs of objects that might be colliding, when the world is stepped on a single thread
+	 */
+	public void setBroadPhase(BroadPhase broadPhase){
+		this.broadPhase = broadPhase;
+	}
+	
+	/**
+	 * @return the strategy used to find the pairs of objects that might be colliding
+	 */
+	public BroadPhase getBroadPhase(){
+		return broadPhase;
+	}
+
+	/**
+	 * @param parallelism the number of threads each tick is spread over.
+	 * If this is more than 1, a {@code ParallelStepper} is used, which always finds collisions through a {@code UniformGrid}.
+	 */
+	public void setParallelism(int parallelism){
+		if(parallelism == this.parallelism)
+			return;
+		shutdown();
+		stepper = null;
+		bufferedStepper = null;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @param eventDriven whether the world is advanced from one predicted collision to the next by an {@code EventDrivenEngine}
+	 */
+	public void setEventDriven(boolean eventDriven){
+		this.eventDriven = eventDriven;
+		this.eventEngine = null;
+	}
+
+	/**
+	 * @param doubleBuffered whether each tick is computed by a {@code DoubleBufferedStepper}, purely from the state at the previous tick.
+	 * This takes precedence over the broad phase and parallelism, but not over event-driven mode.
+	 */
+	public void setDoubleBuffered(boolean doubleBuffered){
+		this.doubleBuffered = doubleBuffered;
+	}
+
+	/**
+	 * @param timeStep the length of time each tick advances the world by, where 1 moves every object by its velocity once
+	 */
+	public void setTimeStep(double timeStep){
+		if(!(timeStep > 0))
+			throw new IllegalArgumentException("timeStep must be positive");
+		this.timeStep = timeStep;
+	}
+
+	/**
+	 * @return the length of time each tick advances the world by
+	 */
+	public double getTimeStep(){
+		return timeStep;
+	}
+
+	/**
+	 * @param continuous whether ticks are split into substeps and collisions resolved at the moment of contact, so that fast objects cannot tunnel
+	 */
+	public void setContinuous(boolean continuous){
+		this.continuous = continuous;
+	}
+
+	/**
+	 * @return whether ticks are split into substeps and collisions resolved at the moment of contact
+	 */
+	public boolean isContinuous(){
+		return continuous;
+	}
+
+	/**
+	 * Must be called whenever objects are added to or removed from the store, or moved by anything other than the world itself.
+	 */
+	public void reset(){
+		eventEngine = null;
+		if(bufferedStepper != null)
+			bufferedStepper.reset();
+	}
+
+	/**
+	 * Adds a listener, which will be notified after every tick.
+	 */
+	public void addListener(Listener l){
+		listeners.add(l);
+	}
+
+	/**
+	 * Removes a listener added through {@code addListener()}.
+	 */
+	public void removeListener(Listener l){
+		listeners.remove(l);
+	}
+
+	/**
+	 * Advances the world by a number of ticks.
+	 * @param n the number of ticks
+	 */
+	public void step(int n){
+		for(int i = 0; i < n; i++)
+			step();
+	}
+
+	/**
+	 * Advances the world by one tick: every object moves along its velocity for one time step, and all collisions are resolved.
+	 * Every listener is then notified.
+	 */
+	public void step(){
+		final double halfWidth = width/2, halfHeight = height/2;
+		int objects = 0, walls = 0;
+		final Reduction totals = new Reduction();
+		final WallImpulse tickImpulses = new WallImpulse();
+		if(eventDriven){
+			if(eventEngine == null)
+				eventEngine = new EventDrivenEngine(particles, halfWidth, halfHeight);
+			eventEngine.setBounds(halfWidth, halfHeight);
+			final long o = eventEngine.getObjectCollisions(), w = eventEngine.getWallCollisions();
+			eventEngine.advance(timeStep, tickImpulses);
+			objects = (int) (eventEngine.getObjectCollisions() - o);
+			walls = (int) (eventEngine.getWallCollisions() - w);
+			totals.add(particles, 0, particles.count());
+		}else{
+			final int substeps = continuous ? getSubsteps() : 1;
+			final double h = timeStep/substeps, sweep = continuous ? h : 0;
+			for(int s = 0; s < substeps; s++){
+				// the totals are only gathered in the last substep, once every object is in its final state
+				final Reduction r = s == substeps-1 ? totals : null;
+				if(doubleBuffered){
+					if(bufferedStepper == null)
+						bufferedStepper = new DoubleBufferedStepper(parallelism);
+					final long o = bufferedStepper.getObjectCollisions(), w = bufferedStepper.getWallCollisions();
+					bufferedStepper.step(particles, h, continuous, halfWidth, halfHeight, r, tickImpulses);
+					objects += (int) (bufferedStepper.getObjectCollisions() - o);
+					walls += (int) (bufferedStepper.getWallCollisions() - w);
+				}else if(parallelism > 1){
+					if(stepper == null)
+						stepper = new ParallelStepper(parallelism);
+					final long o = stepper.getObjectCollisions(), w = stepper.getWallCollisions();
+					stepper.step(particles, h, continuous, halfWidth, halfHeight, r, tickImpulses);
+					objects += (int) (stepper.getObjectCollisions() - o);
+					walls += (int) (stepper.getWallCollisions() - w);
+				}else{
+					particles.move(0, particles.count(), h);
+					objects += broadPhase.computeCollisions(particles, sweep);
+					walls += CollisionEngine.computeWallCollisions(particles, 0, particles.count(), halfWidth, halfHeight, sweep, r, tickImpulses);
+				}
+			}
+		}
+		reduction = totals;
+		impulses = impulses.plus(tickImpulses, timeStep);
+		ticks++;
+		objectCollisions += objects;
+		wallCollisions += walls;
+		for(Listener l: listeners)
+			l.ticked(this, objects, walls);
+	}
+
+	/**
+	 * @return the number of substeps needed in the next tick for no object to move further than its radius in one, up to {@code MAX_SUBSTEPS}
+	 */
+	private int getSubsteps(){
+		final double[] vx = particles.vx, vy = particles.vy;
+		final int[] size = particles.size;
+		double ratio = 0;	// the largest squared distance travelled in a tick, relative to the squared radius
+		for(int i = 0; i < particles.count(); i++){
+			final double r = Math.max(size[i], 1);
+			ratio = Math.max(ratio, (vx[i]*vx[i] + vy[i]*vy[i])/(r*r));
+		}
+		final double substeps = Math.ceil(Math.sqrt(ratio)*timeStep);
+		return (int) Math.max(1, Math.min(substeps, MAX_SUBSTEPS));
+	}
+
+	/**
+	 * @return the totals over every object at the end of the last tick, such as the average speed and the kinetic energy.
+	 * This may be called from any thread; the result never changes once returned.
+	 */
+	public Reduction getReduction(){
+		return reduction;
+	}
+
+	/**
+	 * @return the total momentum transferred to each wall since the world was created, along with the number of ticks and the amount of time simulated.
+	 * This may be called from any thread; the result never changes once returned.
+	 */
+	public WallImpulse getWallImpulse(){
+		return impulses;
+	}
+
+	/**
+	 * This should only be called on the thread that steps the world; other threads should read the tick of {@code getWallImpulse()} instead.
+	 * @return the number of ticks the world has been advanced by
+	 */
+	public long getTicks(){
+		return ticks;
+	}
+
+	/**
+	 * @return the total number of collisions between objects so far
+	 */
+	public long getObjectCollisions(){
+		return objectCollisions;
+	}
+
+	/**
+	 * @return the total number of collisions with the walls so far
+	 */
+	public long getWallCollisions(){
+		return wallCollisions;
+	}
+
+	/**
+	 * Stops any worker threads. The world should not be stepped afterwards.
+	 */
+	public void shutdown(){
+		if(stepper != null)
+			stepper.shutdown();
+		if(bufferedStepper != null)
+			bufferedStepper.shutdown();
+	}
+
+}
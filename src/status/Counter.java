@@ -2,17 +2,23 @@ package status;
 
 import javafx.application.Platform;
 import javafx.scene.control.Label;
+import physics.World;
 import ui.Simulator;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * A {@code StatusElement} that displays some form of counting.
  * Utilities are available to increment, get, and reset the count.
+ * <p>
+ * Incrementing never takes a lock or touches the GUI, so it is cheap enough to do from the simulation thread at any rate;
+ * the label is only refreshed when {@code updateNode()} is called, which the {@code Simulator} does periodically.
  * @author Wei Liang
  */
 public abstract class Counter extends StatusElement {
 	
 	protected final String name;
-	protected volatile int count;
+	protected final LongAdder count = new LongAdder();
 	
 	/**
 	 * @param name The name of the property to be counted, in terms of its key in the accompanying {@code ResourceBundle}
@@ -20,15 +26,22 @@ public abstract class Counter extends StatusElement {
 	protected Counter(final String name){
 		super(new Label());
 		this.name = name;
-		this.count = 0;
 	}
 	
+	/**
+	 * Refreshes the label with the current count.
+	 * If this is not called on the JavaFX Application Thread, the refresh is posted to it.
+	 */
 	@Override
 	public void updateNode(){
+		if(Platform.isFxApplicationThread()){
+			((Label) n).setText(Simulator.getI18nUtils().getString(name) + ": " + count.sum());
+			return;
+		}
 		Platform.runLater(new Runnable(){
 			@Override
 			public void run(){
-				((Label) n).setText(Simulator.getI18nUtils().getString(name) + ": " + count);
+				((Label) n).setText(Simulator.getI18nUtils().getString(name) + ": " + count.sum());
 			}
 		});
 	}
@@ -36,24 +49,42 @@ public abstract class Counter extends StatusElement {
 	/**
 	 * Increments the counter by 1.
 	 */
-	public synchronized void inc(){
-		count++;
-		updateNode();
+	public final void inc(){
+		add(1);
+	}
+	
+	/**
+	 * Increments the counter by several at once.
+	 * This may be called from any number of threads at once.
+	 * @param n the amount to add
+	 */
+	public final void add(int n){
+		count.add(n);
 	}
 	
 	/**
 	 * Resets the counter to 0.
 	 */
 	public final void resetCount(){
-		count = 0;
+		count.reset();
 		updateNode();
 	}
 	
+	@Override
+	protected String getSeriesName(){
+		return name;
+	}
+	
+	@Override
+	protected double getSeriesValue(World world){
+		return count.sum();
+	}
+	
 	/**
 	 * @return The current count
 	 */
-	public final int getCount(){
-		return count;
+	public final long getCount(){
+		return count.sum();
 	}
 
 }
@@ -0,0 +1,22 @@
+package status;
+
+import physics.Reduction;
+
+/**
+ * This {@code Tracker} tracks the total kinetic energy of all the objects in the simulator.
+ * @author Wei Liang
+ */
+public class KineticEnergyTracker extends ReductionTracker {
+
+	private static final String name = "kineticEnergy";
+
+	public KineticEnergyTracker() {
+		super(name);
+	}
+
+	@Override
+	protected double getValue(Reduction r) {
+		return r.getKineticEnergy();
+	}
+
+}
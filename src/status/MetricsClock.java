@@ -0,0 +1,49 @@
+package status;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single clock thread shared by every status element that samples at fixed intervals, such as a {@code RateCounter},
+ * so that adding more of them does not add more threads.
+ * The thread is a daemon, so it never keeps the application running by itself.
+ * Tasks run one at a time on this thread, so they should be short.
+ * A task that throws an exception is still run again, rather than being cancelled as it would be by the executor itself.
+ * @author Wei Liang
+ */
+public final class MetricsClock {
+
+	private static final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+		@Override
+		public Thread newThread(Runnable r){
+			final Thread t = new Thread(r, "metrics-clock");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private MetricsClock(){}
+
+	/**
+	 * Runs a task at a fixed rate, starting one period from now.
+	 * @param task the task to run
+	 * @param periodMillis the time between two runs, in milliseconds
+	 * @return a handle through which the task can be cancelled
+	 */
+	public static ScheduledFuture<?> schedule(final Runnable task, long periodMillis){
+		return clock.scheduleAtFixedRate(new Runnable(){
+			@Override
+			public void run(){
+				try{
+					task.run();
+				}catch(RuntimeException e){
+					// the next run starts afresh
+				}
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+}
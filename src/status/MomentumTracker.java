@@ -0,0 +1,23 @@
+package status;
+
+import physics.Reduction;
+
+/**
+ * This {@code Tracker} tracks the magnitude of the total momentum of all the objects in the simulator,
+ * which should stay constant apart from collisions with the walls.
+ * @author Wei Liang
+ */
+public class MomentumTracker extends ReductionTracker {
+
+	private static final String name = "momentum";
+
+	public MomentumTracker() {
+		super(name);
+	}
+
+	@Override
+	protected double getValue(Reduction r) {
+		return r.getMomentumVector().getMagnitude();
+	}
+
+}
@@ -13,5 +13,12 @@ public class ObjectCollisionRateCounter extends RateCounter {
 	public ObjectCollisionRateCounter(int sampleRate) {
 		super(name, sampleRate);
 	}
+	
+	/**
+	 * @see RateCounter#RateCounter(String, int, int)
+	 */
+	public ObjectCollisionRateCounter(int windowMillis, int intervalMillis) {
+		super(name, windowMillis, intervalMillis);
+	}
 
 }
@@ -0,0 +1,117 @@
+package status;
+
+import physics.WallImpulse;
+import physics.World;
+import ui.Simulator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Tracks the pressure on the walls: the momentum transferred to them per unit of simulated time, per unit of length of wall.
+ * The pressure is either that on all four walls together, or that on a single wall.
+ * <p>
+ * The running totals published by the {@code World} are sampled by the shared {@code MetricsClock} several times per window,
+ * and the pressure is averaged over the last full window, so it is found in constant time however long the window is.
+ * @author Wei Liang
+ */
+public class PressureTracker extends Tracker<Double> {
+
+	/**
+	 * The number of samples taken in each window.
+	 */
+	private static final int SAMPLES = 10;
+
+	private static final String[] names = {"pressureTop", "pressureBottom", "pressureLeft", "pressureRight"};
+
+	private final int wall;
+	private final WallImpulse[] history = new WallImpulse[SAMPLES+1];	// the totals at each sample, as a ring buffer
+	private int oldest;
+	private volatile double exact;	// the value before rounding
+	private final ScheduledFuture<?> timer;
+
+	/**
+	 * Tracks the pressure on all four walls together.
+	 * @param windowMillis The number of milliseconds to average over.
+	 */
+	public PressureTracker(int windowMillis) {
+		this("pressure", -1, windowMillis);
+	}
+
+	/**
+	 * Tracks the pressure on a single wall.
+	 * @param wall The wall, such as {@code WallImpulse.TOP}.
+	 * @param windowMillis The number of milliseconds to average over.
+	 */
+	public PressureTracker(int wall, int windowMillis) {
+		this(names[wall], wall, windowMillis);
+	}
+
+	protected PressureTracker(String name, int wall, int windowMillis) {
+		super(name, 0.0);
+		this.wall = wall;
+		for(int s = 0; s < history.length; s++)
+			history[s] = WallImpulse.EMPTY;
+		this.timer = MetricsClock.schedule(new Runnable(){
+			@Override
+			public void run(){
+				updateValue();
+			}
+		}, Math.max(windowMillis/SAMPLES, 1));
+	}
+
+	/**
+	 * Takes a new sample, and recomputes the pressure over the last window.
+	 * This is called by the {@code MetricsClock}.
+	 */
+	@Override
+	public synchronized void updateValue() {
+		final World world = Simulator.getInstance() == null ? null : Simulator.getInstance().getWorld();
+		if(world == null)
+			return;
+		final WallImpulse start = history[oldest], end = world.getWallImpulse();
+		history[oldest] = end;
+		oldest = (oldest + 1) % history.length;
+		final double time = end.getTime() - start.getTime();
+		final double impulse = wall < 0 ? end.getTotal() - start.getTotal() : end.get(wall) - start.get(wall);
+		final double length = wall < 0 ? 2*(world.getWidth() + world.getHeight())
+				: wall == WallImpulse.TOP || wall == WallImpulse.BOTTOM ? world.getWidth() : world.getHeight();
+		exact = time > 0 && length > 0 ? getValue(impulse/time/length, world) : 0;
+		value = round(exact);
+		updateNode();
+	}
+
+	/**
+	 * The pressure over the last full window is kept without rounding.
+	 */
+	@Override
+	protected double getSeriesValue(World world) {
+		return exact;
+	}
+
+	/**
+	 * @param pressure the pressure over the last window
+	 * @param world the world it was measured in
+	 * @return the value to display
+	 */
+	protected double getValue(double pressure, World world) {
+		return pressure;
+	}
+
+	/**
+	 * Pressures are often much smaller than 1, so they are rounded to a number of significant digits rather than of decimal places.
+	 */
+	private static double round(double value) {
+		return new BigDecimal(value).round(new MathContext(4)).doubleValue();
+	}
+
+	/**
+	 * Stops sampling. The status label will remain visible, but it will not be updated.
+	 */
+	@Override
+	public final void shutdown() {
+		timer.cancel(false);
+	}
+
+}
@@ -0,0 +1,25 @@
+package status;
+
+import physics.World;
+
+/**
+ * Tracks the product of the pressure on all four walls and the area of the field, which for an ideal gas stays constant as the field is resized.
+ * @author Wei Liang
+ */
+public class PressureVolumeTracker extends PressureTracker {
+
+	private static final String name = "pressureVolume";
+
+	/**
+	 * @param windowMillis The number of milliseconds to average the pressure over.
+	 */
+	public PressureVolumeTracker(int windowMillis) {
+		super(name, -1, windowMillis);
+	}
+
+	@Override
+	protected double getValue(double pressure, World world) {
+		return pressure*world.getWidth()*world.getHeight();
+	}
+
+}
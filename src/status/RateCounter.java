@@ -2,72 +2,100 @@ package status;
 
 import javafx.application.Platform;
 import javafx.scene.control.Label;
+import physics.World;
 import ui.Simulator;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 
 /**
- * A {@code Counter} that, rather than displaying an absolute value, resets at fixed intervals, storing the last few values and displaying the average. 
+ * A {@code Counter} that, rather than displaying an absolute value, resets at fixed intervals, storing the last few values and displaying the average rate per second.
+ * The values are kept in a ring buffer along with their running sum, so the average is found in constant time however long the window is.
+ * Every rate counter is driven by the shared {@code MetricsClock}.
  * @author Wei Liang
  */
 public abstract class RateCounter extends Counter {
 
-	private ScheduledExecutorService timer;
-	private final ArrayBlockingQueue<Integer> counts;
-	protected final int sampleTime;
-	
+	private final ScheduledFuture<?> timer;
+	private final long[] counts;	// the count of each of the last few intervals, as a ring buffer
+	private int oldest;				// the index of the oldest count in counts
+	private volatile long sum;		// the sum of counts
+	protected final int windowMillis;	// the number of milliseconds averaged over, a whole number of intervals
+	protected final int intervalMillis;
+
 	/**
-	 * @param sampleTime The time delay between resetting each count (the length of time between each fixed interval.
+	 * @param sampleTime The number of seconds to average over, with the count being reset every second.
 	 */
 	protected RateCounter(final String name, final int sampleTime) {
+		this(name, sampleTime*1000, 1000);
+	}
+
+	/**
+	 * @param windowMillis The number of milliseconds to average over.
+	 * @param intervalMillis The number of milliseconds between resetting each count; the window is rounded up to a whole number of intervals.
+	 */
+	protected RateCounter(final String name, final int windowMillis, final int intervalMillis) {
 		super(name);
-		this.sampleTime = sampleTime;
-		this.counts = new ArrayBlockingQueue<>(sampleTime);
-		while(this.counts.offer(new Integer(0)))	// fill history with 0
-			;
-		this.timer = Executors.newSingleThreadScheduledExecutor();
-		this.timer.scheduleAtFixedRate(new Runnable(){
+		if(windowMillis <= 0 || intervalMillis <= 0)
+			throw new IllegalArgumentException("Times must be positive!");
+		this.intervalMillis = intervalMillis;
+		this.counts = new long[(windowMillis + intervalMillis - 1)/intervalMillis];
+		this.windowMillis = counts.length*intervalMillis;
+		this.timer = MetricsClock.schedule(new Runnable(){
 			@Override
 			public void run(){
 				try{
-					counts.remove();
-					counts.add(count);
+					sample(count.sumThenReset());
 				}finally{
-					resetCount();
+					updateNode();
 				}
 			}
-		}, Math.max(5, sampleTime), 1, TimeUnit.SECONDS);
+		}, intervalMillis);
+	}
+
+	/**
+	 * Replaces the oldest count in the history with the latest one.
+	 */
+	private synchronized void sample(long latest){
+		sum += latest - counts[oldest];
+		counts[oldest] = latest;
+		oldest = (oldest + 1) % counts.length;
 	}
-	
+
+	/**
+	 * @return The average number of counts per second over the window
+	 */
+	public final double getRate(){
+		return sum*1000.0/windowMillis;
+	}
+
+	@Override
+	protected double getSeriesValue(World world){
+		return getRate();
+	}
+
 	@Override
 	public final void updateNode(){
+		if(Platform.isFxApplicationThread()){
+			((Label) n).setText(Simulator.getI18nUtils().getString(name) + ": " + getRate());
+			return;
+		}
 		Platform.runLater(new Runnable(){
 			@Override
 			public void run(){
-				double average = 0;
-				for(Integer i: counts)
-					average += i;
-				average /= counts.size();
-				((Label) n).setText(Simulator.getI18nUtils().getString(name) + ": " + average);
+				((Label) n).setText(Simulator.getI18nUtils().getString(name) + ": " + getRate());
 			}
 		});
 	}
-	
-	@Override
-	public synchronized void inc(){
-		count++;
-	}
-	
+
 	/**
 	 * Clears the memory of the counter to 0.
 	 */
 	public void flushCount(){
-		counts.clear();
-		while(this.counts.offer(new Integer(0)))
-			;
+		synchronized(this){
+			for(int i = 0; i < counts.length; i++)
+				counts[i] = 0;
+			sum = 0;
+		}
 		updateNode();
 	}
 
@@ -76,7 +104,12 @@ public abstract class RateCounter extends Counter {
 	 * Note that once the timer has been shut down, it should not be restarted.
 	 */
 	public final void shutdownTimer(){
-		this.timer.shutdownNow();
+		this.timer.cancel(false);
+	}
+
+	@Override
+	public final void shutdown(){
+		shutdownTimer();
 	}
 
-}
\ No newline at end of file
+}
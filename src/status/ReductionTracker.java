@@ -0,0 +1,38 @@
+package status;
+
+import physics.Reduction;
+import physics.World;
+import ui.Simulator;
+
+/**
+ * The base class of trackers whose value is one of the totals gathered by the simulation at every tick; see {@code physics.Reduction}.
+ * All of the totals are gathered in the same pass over the objects, so adding more of these trackers does not slow down the simulation.
+ * @author Wei Liang
+ */
+public abstract class ReductionTracker extends Tracker<Double> {
+
+	protected ReductionTracker(String name) {
+		super(name, 0.0);
+	}
+
+	/**
+	 * @param r the latest totals
+	 * @return the value to display
+	 */
+	protected abstract double getValue(Reduction r);
+
+	@Override
+	public void updateValue() {
+		value = Math.round(getValue(Simulator.getInstance().getWorld().getReduction())*1000)/1000.0;
+		updateNode();
+	}
+
+	/**
+	 * The value is read from the totals the world published at the tick being sampled, without rounding.
+	 */
+	@Override
+	protected double getSeriesValue(World world) {
+		return getValue(world.getReduction());
+	}
+
+}
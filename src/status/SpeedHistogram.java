@@ -0,0 +1,129 @@
+package status;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import physics.Reduction;
+import physics.SpeedDistribution;
+import physics.World;
+import ui.Simulator;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A {@code StatusElement} that shows the distribution of the speeds of all the objects as a bar chart,
+ * so that it can be watched converging to the Maxwell-Boltzmann distribution.
+ * The line over the bars is that distribution for two dimensions, with the same average speed.
+ * <p>
+ * A sample falls due at fixed intervals of the shared {@code MetricsClock}, rather than at every tick,
+ * and is taken at the end of the next tick on the thread that stepped the world, so the objects never change while they are being counted.
+ * The bins span three times the average speed, and faster objects are counted in the last bin.
+ * @author Wei Liang
+ */
+public class SpeedHistogram extends StatusElement {
+
+	private static final String name = "speedDistribution";
+	private static final int WIDTH = 150, HEIGHT = 80;
+
+	private final Label label = new Label();
+	private final Canvas chart = new Canvas(WIDTH, HEIGHT);
+	private final ScheduledFuture<?> timer;
+	private volatile long[] counts;
+	private volatile double averageSpeed;
+	private volatile boolean due;
+
+	/**
+	 * @param bins The number of bars in the chart.
+	 * @param intervalMillis The number of milliseconds between two samples.
+	 */
+	public SpeedHistogram(final int bins, final int intervalMillis) {
+		super(new VBox());
+		((VBox) n).getChildren().addAll(label, chart);
+		this.counts = new long[bins];
+		this.timer = MetricsClock.schedule(new Runnable(){
+			@Override
+			public void run(){
+				due = true;
+			}
+		}, intervalMillis);
+	}
+
+	/**
+	 * Samples the speeds of the objects, if a sample is due.
+	 * This must be called on the thread that stepped the world, once a tick is complete.
+	 * @param world the world that was stepped
+	 */
+	public void ticked(World world){
+		if(!due)
+			return;
+		due = false;
+		final Reduction r = world.getReduction();
+		final double speed = r.getAverageSpeed();
+		counts = SpeedDistribution.compute(world.getParticles(), speed > 0 ? 3*speed : 1, counts.length);
+		averageSpeed = speed;
+		updateNode();
+	}
+
+	@Override
+	public void updateNode() {
+		if(!Platform.isFxApplicationThread()){
+			Platform.runLater(new Runnable(){
+				@Override
+				public void run(){
+					updateNode();
+				}
+			});
+			return;
+		}
+		label.setText(Simulator.getI18nUtils().getString(name) + ":");
+		final long[] counts = this.counts;
+		final double speed = averageSpeed;
+		final GraphicsContext g = chart.getGraphicsContext2D();
+		g.clearRect(0, 0, WIDTH, HEIGHT);
+		long total = 0, highest = 1;
+		for(long c: counts){
+			total += c;
+			highest = Math.max(highest, c);
+		}
+		if(total == 0)
+			return;
+		final double barWidth = (double) WIDTH/counts.length;
+		// in two dimensions, the fraction of objects faster than v is exp(-v^2/(2 s^2)), where the average speed is s*sqrt(pi/2)
+		final double s2 = speed*speed*2/Math.PI;
+		final double[] expected = new double[counts.length];
+		for(int b = 0; b < counts.length; b++){
+			final double low = 3*speed*b/counts.length, high = 3*speed*(b+1)/counts.length;
+			expected[b] = total*(Math.exp(-low*low/(2*s2)) - (b == counts.length-1 ? 0 : Math.exp(-high*high/(2*s2))));
+			highest = Math.max(highest, (long) Math.ceil(expected[b]));
+		}
+		g.setFill(Color.STEELBLUE);
+		for(int b = 0; b < counts.length; b++){
+			final double h = HEIGHT*(double) counts[b]/highest;
+			g.fillRect(b*barWidth, HEIGHT - h, Math.max(barWidth - 1, 1), h);
+		}
+		if(speed > 0){
+			g.setStroke(Color.RED);
+			g.beginPath();
+			for(int b = 0; b < counts.length; b++){
+				final double x = (b + 0.5)*barWidth, y = HEIGHT*(1 - expected[b]/highest);
+				if(b == 0)
+					g.moveTo(x, y);
+				else
+					g.lineTo(x, y);
+			}
+			g.stroke();
+		}
+	}
+
+	/**
+	 * Stops sampling. The chart will remain visible, but it will not be updated.
+	 */
+	@Override
+	public final void shutdown(){
+		timer.cancel(false);
+	}
+
+}
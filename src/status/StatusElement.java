@@ -1,6 +1,7 @@
 package status;
 
 import javafx.scene.Node;
+import physics.World;
 import ui.GraphicElement;
 
 import java.util.ArrayList;
@@ -18,6 +19,40 @@ public abstract class StatusElement implements GraphicElement{
 		this.n = n;
 	}
 	
+	/**
+	 * Keeps the value of this element from now on, in a new series of a sink, which samples it along with the others whenever the world has advanced by its interval.
+	 * The value is read through {@code getSeriesValue()}, independently of when the node is refreshed.
+	 * Nothing is kept by elements that do not show a single number; see {@code getSeriesName()}.
+	 * @param sink the sink
+	 */
+	public final void recordTo(TimeSeriesSink sink){
+		final String name = getSeriesName();
+		if(name != null)
+			sink.newSeries(name, new TimeSeriesSink.Source(){
+				@Override
+				public double sample(World world){
+					return getSeriesValue(world);
+				}
+			});
+	}
+	
+	/**
+	 * @return the name of the series the values of this element are kept in, or null if it does not show a single number
+	 */
+	protected String getSeriesName(){
+		return null;
+	}
+	
+	/**
+	 * Reads the value to keep, as it is before being rounded for display. This is only called if {@code getSeriesName()} does not return null.
+	 * It is called on the thread that stepped the world, so it should read what the world has published rather than the node.
+	 * @param world the world that was stepped
+	 * @return the value
+	 */
+	protected double getSeriesValue(World world){
+		return Double.NaN;
+	}
+	
 	/**
 	 * Displays the node.
 	 */
@@ -32,6 +67,13 @@ public abstract class StatusElement implements GraphicElement{
 	 */
 	public abstract void updateNode();
 
+	/**
+	 * Stops anything that updates the status by itself, such as a timer, once the simulator is closing.
+	 * Nothing is done by default; the node will remain visible, but it may no longer be updated.
+	 */
+	public void shutdown(){
+	}
+
 	/**
 	 * This interface is to enable the definition of status elements outside the JavaFX Application Thread,
 	 * while deferring the execution of those definitions to the Application Thread itself.
@@ -0,0 +1,22 @@
+package status;
+
+import physics.Reduction;
+
+/**
+ * This {@code Tracker} tracks the temperature of all the objects in the simulator: their average kinetic energy, apart from the motion of their center of mass.
+ * @author Wei Liang
+ */
+public class TemperatureTracker extends ReductionTracker {
+
+	private static final String name = "temperature";
+
+	public TemperatureTracker() {
+		super(name);
+	}
+
+	@Override
+	protected double getValue(Reduction r) {
+		return r.getTemperature();
+	}
+
+}
@@ -0,0 +1,371 @@
+package status;
+
+import physics.WallImpulse;
+import physics.World;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the values of metrics of a {@code World} over a whole run, so that they can be analysed afterwards.
+ * <p>
+ * Each metric is read by a {@code Source} into its own {@code Series}. The sink listens to the world, and every few ticks,
+ * once the tick is complete and on the thread that stepped the world, it samples every source and stamps the values with the tick and the simulated time the world published;
+ * so the samples are evenly spaced in ticks however fast the world is stepped or drawn, and none are taken while it is paused.
+ * On the ticks in between, the only work done is a single comparison, and sources read totals the world has already published,
+ * such as its {@code Reduction} and {@code WallImpulse}, rather than going over the objects again.
+ * The values are kept in columns of primitives, in blocks that are never copied as the series grows.
+ * <p>
+ * Status elements can be sources themselves, through {@code StatusElement.recordTo()}, but the sink does not depend on them,
+ * so a world run without a GUI can be recorded just the same.
+ * <p>
+ * The series can be written as CSV, one row per value, or in a columnar binary format, all in little-endian byte order:
+ * <pre>
+ * int    magic ("CTSS")
+ * int    version
+ * int    number of series, s
+ * for each series: int length of its name in UTF-8 bytes, the name, int number of values n
+ * for each series: long tick[n], double time[n], double value[n]
+ * </pre>
+ * @author Wei Liang
+ */
+public final class TimeSeriesSink implements World.Listener {
+
+	/**
+	 * The first four bytes of every file in the binary format, which are "CTSS" in ASCII, read as a little-endian int.
+	 */
+	public static final int MAGIC = 0x53535443;
+
+	/**
+	 * The version of the binary format written by this class. Files of any other version cannot be read.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The first line of the CSV format.
+	 */
+	public static final String CSV_HEADER = "series,tick,time,value";
+
+	private static final int BLOCK_BITS = 12, BLOCK = 1 << BLOCK_BITS;
+
+	private final World world;
+	private final int interval;
+	private final ArrayList<Series> series = new ArrayList<>();
+
+	/**
+	 * A metric whose values are kept in a series.
+	 */
+	public interface Source {
+		/**
+		 * Called every few ticks, on the thread that stepped the world, once the tick is complete.
+		 * @param world the world that was stepped
+		 * @return the current value of the metric
+		 */
+		double sample(World world);
+	}
+
+	/**
+	 * The values of one metric.
+	 */
+	public static final class Series {
+		private final String name;
+		private final Source source;
+		// the columns, as blocks of BLOCK values each
+		private long[][] ticks = new long[1][];
+		private double[][] times = new double[1][], values = new double[1][];
+		private int size;
+
+		private Series(String name, Source source){
+			this.name = name;
+			this.source = source;
+		}
+
+		/**
+		 * Adds the current value of the source, stamped with a tick and the simulated time at that tick.
+		 */
+		private synchronized void sample(long tick, double time, World world){
+			put(tick, time, source.sample(world));
+		}
+
+		private void put(long tick, double time, double value){
+			final int block = size >>> BLOCK_BITS, offset = size & (BLOCK - 1);
+			if(offset == 0){
+				if(block == ticks.length){
+					ticks = Arrays.copyOf(ticks, block*2);
+					times = Arrays.copyOf(times, block*2);
+					values = Arrays.copyOf(values, block*2);
+				}
+				ticks[block] = new long[BLOCK];
+				times[block] = new double[BLOCK];
+				values[block] = new double[BLOCK];
+			}
+			ticks[block][offset] = tick;
+			times[block][offset] = time;
+			values[block][offset] = value;
+			size++;
+		}
+
+		/**
+		 * @return the name of the series, which is unique within its sink
+		 */
+		public String getName(){
+			return name;
+		}
+
+		/**
+		 * @return the number of values
+		 */
+		public synchronized int size(){
+			return size;
+		}
+
+		/**
+		 * @param i the index of a value, from 0 for the oldest
+		 * @return the tick at which the value was taken
+		 */
+		public synchronized long getTick(int i){
+			return ticks[i >>> BLOCK_BITS][i & (BLOCK - 1)];
+		}
+
+		/**
+		 * @param i the index of a value, from 0 for the oldest
+		 * @return the simulated time at which the value was taken
+		 */
+		public synchronized double getTime(int i){
+			return times[i >>> BLOCK_BITS][i & (BLOCK - 1)];
+		}
+
+		/**
+		 * @param i the index of a value, from 0 for the oldest
+		 * @return the value
+		 */
+		public synchronized double getValue(int i){
+			return values[i >>> BLOCK_BITS][i & (BLOCK - 1)];
+		}
+
+		/**
+		 * Copies the values of the series column by column into a buffer, after the number of values given, flushing it to a channel whenever it is full.
+		 */
+		private synchronized void write(FileChannel channel, ByteBuffer buffer, int n) throws IOException {
+			for(int i = 0; i < n; i++){
+				if(buffer.remaining() < 8)
+					flush(channel, buffer);
+				buffer.putLong(ticks[i >>> BLOCK_BITS][i & (BLOCK - 1)]);
+			}
+			for(double[][] column: new double[][][]{times, values})
+				for(int i = 0; i < n; i++){
+					if(buffer.remaining() < 8)
+						flush(channel, buffer);
+					buffer.putDouble(column[i >>> BLOCK_BITS][i & (BLOCK - 1)]);
+				}
+		}
+	}
+
+	/**
+	 * Creates an empty sink, which samples its series from now on, until it is closed.
+	 * @param world the world to sample
+	 * @param interval the number of ticks between two samples; samples are taken at every tick that is a multiple of this
+	 */
+	public TimeSeriesSink(World world, int interval){
+		if(interval <= 0)
+			throw new IllegalArgumentException("The interval must be positive!");
+		this.world = world;
+		this.interval = interval;
+		world.addListener(this);
+	}
+
+	/**
+	 * Creates an empty sink that samples nothing, to be filled by {@code read()}.
+	 */
+	private TimeSeriesSink(){
+		this.world = null;
+		this.interval = 0;
+	}
+
+	/**
+	 * Creates a new, empty series in this sink, to which the value of a source is added at every sample from now on.
+	 * @param name the name of the series; if another series already has that name, a number is added to it, starting from 2
+	 * @param source the source of the values
+	 * @return the series
+	 */
+	public synchronized Series newSeries(String name, Source source){
+		String unique = name;
+		for(int k = 2; get(unique) != null; k++)
+			unique = name + "#" + k;
+		final Series s = new Series(unique, source);
+		series.add(s);
+		return s;
+	}
+
+	/**
+	 * Samples every series, if the tick is a multiple of the interval.
+	 * This is called by the world that is being sampled.
+	 */
+	@Override
+	public void ticked(World world, int objectCollisions, int wallCollisions){
+		// the tick and the time are published together, so they always agree
+		final WallImpulse now = world.getWallImpulse();
+		if(now.getTick() % interval != 0)
+			return;
+		synchronized(this){
+			for(Series s: series)
+				s.sample(now.getTick(), now.getTime(), world);
+		}
+	}
+
+	/**
+	 * Stops sampling. The values kept so far can still be read and written.
+	 * Nothing is done if this has already been closed, or was read from a file.
+	 */
+	public void close(){
+		if(world != null)
+			world.removeListener(this);
+	}
+
+	/**
+	 * @param name the name of a series
+	 * @return the series of that name, or null if there is none
+	 */
+	public synchronized Series get(String name){
+		for(Series s: series)
+			if(s.name.equals(name))
+				return s;
+		return null;
+	}
+
+	/**
+	 * @return every series, in the order they were created
+	 */
+	public synchronized List<Series> getSeries(){
+		return Collections.unmodifiableList(new ArrayList<>(series));
+	}
+
+	/**
+	 * Writes every series in the binary format, replacing the file if it exists.
+	 * Values added to a series while it is being written are left out.
+	 * @param file the file to write
+	 * @throws IOException the file could not be written
+	 */
+	public void write(File file) throws IOException {
+		final List<Series> series = getSeries();
+		final int[] sizes = new int[series.size()];
+		final FileOutputStream out = new FileOutputStream(file);
+		try{
+			final FileChannel channel = out.getChannel();
+			final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(series.size());
+			for(int i = 0; i < sizes.length; i++){
+				final byte[] name = series.get(i).name.getBytes(StandardCharsets.UTF_8);
+				sizes[i] = series.get(i).size();
+				if(buffer.remaining() < 8 + name.length)
+					flush(channel, buffer);
+				if(buffer.remaining() < 8 + name.length)
+					throw new IOException("Series name too long: " + series.get(i).name);
+				buffer.putInt(name.length).put(name).putInt(sizes[i]);
+			}
+			for(int i = 0; i < sizes.length; i++)
+				series.get(i).write(channel, buffer, sizes[i]);
+			flush(channel, buffer);
+		}finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes every series as CSV, one row per value, replacing the file if it exists; the first row is {@code CSV_HEADER}.
+	 * Values added to a series while it is being written are left out.
+	 * @param file the file to write
+	 * @throws IOException the file could not be written
+	 */
+	public void writeCsv(File file) throws IOException {
+		final PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+		try{
+			pw.println(CSV_HEADER);
+			for(Series s: getSeries()){
+				final String prefix = s.name.indexOf(',') >= 0 || s.name.indexOf('"') >= 0 ? '"' + s.name.replace("\"", "\"\"") + "\"," : s.name + ",";
+				for(int i = 0, n = s.size(); i < n; i++){
+					pw.print(prefix);
+					pw.print(s.getTick(i));
+					pw.print(',');
+					pw.print(s.getTime(i));
+					pw.print(',');
+					pw.println(s.getValue(i));
+				}
+			}
+			if(pw.checkError())
+				throw new IOException("Could not write " + file);
+		}finally{
+			pw.close();
+		}
+	}
+
+	/**
+	 * Reads every series from a file in the binary format, into a sink of their own.
+	 * @param file the file to read
+	 * @return the sink, to which no more values should be added
+	 * @throws IOException the file could not be read, or is not in the binary format of this version
+	 */
+	public static TimeSeriesSink read(File file) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try{
+			final FileChannel channel = raf.getChannel();
+			final MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			b.order(ByteOrder.LITTLE_ENDIAN);
+			if(b.remaining() < 12 || b.getInt() != MAGIC)
+				throw new IOException("Not a time series file: " + file);
+			final int version = b.getInt();
+			if(version != VERSION)
+				throw new IOException("Unsupported time series version " + version + ": " + file);
+			final TimeSeriesSink sink = new TimeSeriesSink();
+			final int count = b.getInt();
+			final int[] sizes = new int[Math.max(count, 0)];
+			for(int i = 0; i < sizes.length; i++){
+				final byte[] name = new byte[b.getInt()];
+				b.get(name);
+				sizes[i] = b.getInt();
+				sink.series.add(new Series(new String(name, StandardCharsets.UTF_8), null));
+			}
+			for(int i = 0; i < sizes.length; i++){
+				final Series s = sink.series.get(i);
+				final long[] ticks = new long[sizes[i]];
+				final double[] times = new double[sizes[i]], values = new double[sizes[i]];
+				b.asLongBuffer().get(ticks);
+				b.position(b.position() + 8*sizes[i]);
+				b.asDoubleBuffer().get(times);
+				b.position(b.position() + 8*sizes[i]);
+				b.asDoubleBuffer().get(values);
+				b.position(b.position() + 8*sizes[i]);
+				for(int k = 0; k < sizes[i]; k++)
+					s.put(ticks[k], times[k], values[k]);
+			}
+			return sink;
+		}catch(RuntimeException e){
+			// a count or length that runs past the end of the file
+			throw new IOException("Truncated time series file: " + file, e);
+		}finally{
+			raf.close();
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+}
@@ -2,6 +2,7 @@ package status;
 
 import javafx.application.Platform;
 import javafx.scene.control.Label;
+import physics.World;
 import ui.Simulator;
 
 /**
@@ -20,8 +21,16 @@ public abstract class Tracker<V extends Number> extends StatusElement {
 		this.value = defaultValue;
 	}
 
+	/**
+	 * Refreshes the label with the current value.
+	 * If this is not called on the JavaFX Application Thread, the refresh is posted to it.
+	 */
 	@Override
 	public void updateNode() {
+		if(Platform.isFxApplicationThread()){
+			((Label) n).setText(Simulator.getI18nUtils().getString(name) + ": " + value);
+			return;
+		}
 		Platform.runLater(new Runnable(){
 			@Override
 			public void run(){
@@ -30,6 +39,19 @@ public abstract class Tracker<V extends Number> extends StatusElement {
 		});
 	}
 	
+	@Override
+	protected String getSeriesName() {
+		return name;
+	}
+	
+	/**
+	 * The value last updated is kept by default; trackers that round their values for display should override this.
+	 */
+	@Override
+	protected double getSeriesValue(World world) {
+		return value.doubleValue();
+	}
+	
 	/**
 	 * Updates the value.
 	 * Since we do not yet have sufficient context, the class is left abstract.
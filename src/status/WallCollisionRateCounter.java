@@ -13,5 +13,12 @@ public class WallCollisionRateCounter extends RateCounter {
 	public WallCollisionRateCounter(int sampleRate) {
 		super(name, sampleRate);
 	}
+	
+	/**
+	 * @see RateCounter#RateCounter(String, int, int)
+	 */
+	public WallCollisionRateCounter(int windowMillis, int intervalMillis) {
+		super(name, windowMillis, intervalMillis);
+	}
 
 }
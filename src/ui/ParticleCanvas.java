@@ -0,0 +1,154 @@
+package ui;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import objects.ParticleStore;
+import objects.Thing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Draws every object onto a single {@code Canvas}, instead of keeping a {@code Circle} node for each.
+ * After each tick, the positions are copied into a frame on the thread that stepped the simulation, and the display pulls only the latest frame through {@code drawLatest()}:
+ * frames published in between are dropped, so the simulation can tick much faster than the display refreshes, and a slow frame never holds up the simulation.
+ * Objects of the same colour are drawn together, so the fill only changes once per colour in each frame.
+ * <p>
+ * As with the nodes of a {@code StackPane}, the origin is at the center of the canvas.
+ * @author Wei Liang
+ */
+public final class ParticleCanvas extends Canvas {
+
+	/**
+	 * The positions of the objects at one tick.
+	 */
+	private static final class Frame {
+		double[] x = new double[0], y = new double[0];
+		int count;
+	}
+
+	/**
+	 * The objects of each colour, which only change when objects are added or removed.
+	 */
+	private static final class Batches {
+		final Color[] colors;
+		final int[][] members;	// the indices of the objects of each colour
+		final int[] size;		// the radius of every object
+
+		Batches(Color[] colors, int[][] members, int[] size){
+			this.colors = colors;
+			this.members = members;
+			this.size = size;
+		}
+	}
+
+	private final AtomicReference<Frame> latest = new AtomicReference<>(), spare = new AtomicReference<>();
+	private volatile Batches batches = new Batches(new Color[0], new int[0][], new int[0]);
+	private Frame shown;	// the frame on the canvas, only accessed on the JavaFX application thread
+
+	/**
+	 * Creates an empty canvas, which is redrawn whenever it is resized.
+	 */
+	public ParticleCanvas() {
+		final ChangeListener<Number> redraw = new ChangeListener<Number>(){
+			@Override
+			public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
+				draw();
+			}
+		};
+		widthProperty().addListener(redraw);
+		heightProperty().addListener(redraw);
+	}
+
+	/**
+	 * Sets the objects to draw, grouping them by colour.
+	 * Must be called whenever objects are added or removed, before the next call to {@code update()}.
+	 * @param objects the objects, in the same order as in their store
+	 */
+	public void setObjects(List<? extends Thing> objects){
+		final Map<Color, ArrayList<Integer>> groups = new LinkedHashMap<>();
+		final int[] size = new int[objects.size()];
+		for(int i = 0; i < objects.size(); i++){
+			final Thing t = objects.get(i);
+			size[i] = t.size;
+			if(!groups.containsKey(t.getFill()))
+				groups.put(t.getFill(), new ArrayList<Integer>());
+			groups.get(t.getFill()).add(i);
+		}
+		final Color[] colors = new Color[groups.size()];
+		final int[][] members = new int[groups.size()][];
+		int k = 0;
+		for(Map.Entry<Color, ArrayList<Integer>> e: groups.entrySet()){
+			colors[k] = e.getKey();
+			members[k] = new int[e.getValue().size()];
+			for(int m = 0; m < members[k].length; m++)
+				members[k][m] = e.getValue().get(m);
+			k++;
+		}
+		batches = new Batches(colors, members, size);
+	}
+
+	/**
+	 * Copies the current positions of the objects into a new frame, replacing any frame that has not been drawn yet.
+	 * This may be called from any thread, but not from several at once.
+	 * @param particles the store holding the state of the objects
+	 */
+	public void update(ParticleStore particles){
+		Frame f = spare.getAndSet(null);
+		if(f == null)
+			f = new Frame();
+		final int n = particles.count();
+		if(f.x.length < n){
+			f.x = new double[n];
+			f.y = new double[n];
+		}
+		System.arraycopy(particles.x, 0, f.x, 0, n);
+		System.arraycopy(particles.y, 0, f.y, 0, n);
+		f.count = n;
+		final Frame old = latest.getAndSet(f);
+		if(old != null)
+			spare.set(old);
+	}
+
+	/**
+	 * Draws the latest frame published through {@code update()}, if there is one that has not been drawn yet.
+	 * This must be called on the JavaFX application thread, typically once per frame of the display.
+	 */
+	public void drawLatest(){
+		final Frame f = latest.getAndSet(null);
+		if(f == null)
+			return;
+		if(shown != null)
+			spare.set(shown);
+		shown = f;
+		draw();
+	}
+
+	/**
+	 * Redraws the frame currently on the canvas.
+	 */
+	private void draw(){
+		final GraphicsContext g = getGraphicsContext2D();
+		final double width = getWidth(), height = getHeight(), cx = width/2, cy = height/2;
+		g.clearRect(0, 0, width, height);
+		final Frame f = shown;
+		if(f == null)
+			return;
+		final Batches b = batches;
+		for(int k = 0; k < b.colors.length; k++){
+			g.setFill(b.colors[k]);
+			for(int i: b.members[k])
+				if(i < f.count){
+					final int s = b.size[i];
+					g.fillOval(cx + f.x[i] - s, cy + f.y[i] - s, 2*s, 2*s);
+				}
+		}
+	}
+
+}
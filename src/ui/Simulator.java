@@ -1,22 +1,34 @@
 package ui;
 
+import file.Checkpointer;
 import file.FileIO;
+import file.TrajectoryReader;
+import file.TrajectoryRecorder;
 import i18n.I18nUtils;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 import javafx.util.Pair;
+import objects.ParticleStore;
 import objects.Thing;
+import physics.BroadPhase;
+import physics.UniformGrid;
+import physics.World;
 import status.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Locale;
 import java.util.concurrent.Executors;
@@ -59,10 +71,17 @@ public final class Simulator extends Application {
 	protected Button startStop;
 	protected HBox bottom;
 	protected StackPane field;
+	protected ParticleCanvas canvas;
+	/**
+	 * Whether each object is shown as its own {@code Circle} node, which can be customised through {@code Thing.toNode()},
+	 * rather than drawn with all the others onto a single {@code ParticleCanvas}.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static boolean nodeRendering = false;
 	protected final EventHandler<ActionEvent> pauseAction = new EventHandler<ActionEvent>(){
 		@Override
 		public void handle(ActionEvent arg0) {
-			animator.shutdownNow();
+			stopAnimator();
 			startStop.setText(i18n.getString("start"));
 			startStop.setOnAction(startAction);
 			bottom.setDisable(false);
@@ -74,12 +93,22 @@ public final class Simulator extends Application {
 			bottom.setDisable(true);
 			startStop.setText(i18n.getString("pause"));
 			startStop.setOnAction(pauseAction);
+			world.reset();
+			if(checkpointer != null)
+				checkpointer.setTickDelay(tickDelay);
 			animator = Executors.newSingleThreadScheduledExecutor();
-			animator.scheduleAtFixedRate(animation, 0, tickDelay, TimeUnit.MILLISECONDS);
+			if(tickDelay > 0)
+				animator.scheduleAtFixedRate(animation, 0, tickDelay, TimeUnit.MILLISECONDS);
+			else
+				animator.execute(freeRun);
 		}
 	};
 	
 	// animation related
+	/**
+	 * The number of milliseconds between ticks, or 0 to tick as fast as possible.
+	 * The display is refreshed at its own rate regardless; see {@code frameTimer}.
+	 */
 	private int tickDelay = 10;
 	public int getTickDelay(){
 		return tickDelay;
@@ -89,24 +118,196 @@ public final class Simulator extends Application {
 			throw new IllegalStateException("Simulation must be paused first!");
 		this.tickDelay = tickDelay;
 	}
+	/**
+	 * The strategy used to find the pairs of objects that might be colliding, such as a {@code UniformGrid}, {@code SweepAndPrune} or {@code AllPairs}.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static BroadPhase broadPhase = new UniformGrid();
+	/**
+	 * The number of threads each tick is spread over.
+	 * If this is more than 1, a {@code ParallelStepper} is used, which always finds collisions through a {@code UniformGrid}.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static int parallelism = 1;
+	/**
+	 * Whether the simulation is advanced from one predicted collision to the next by an {@code EventDrivenEngine}, rather than moved tick by tick and checked for overlaps.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static boolean eventDriven = false;
+	/**
+	 * The length of time each tick advances the simulation by, where 1 moves every object by its velocity once.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static double timeStep = 1;
+	/**
+	 * Whether each tick is computed purely from the state at the previous tick, so that the results do not depend on the number of threads.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static boolean doubleBuffered = false;
+	/**
+	 * Whether each tick is split into substeps small enough that fast objects cannot pass through each other or the walls.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static boolean continuous = false;
+	/**
+	 * The number of ticks between two frames of a recording made through the menu.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static int recordStride = 1;
+	private TrajectoryRecorder recorder;
+	protected MenuItem record;
+	/**
+	 * The number of recorded ticks played back per second when replaying a recording, however fast the original run was computed.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static double replaySpeed = 100;
+	/**
+	 * The directory checkpoints are written into while the simulation runs, or null to take none.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static File checkpointDirectory = null;
+	/**
+	 * The number of milliseconds between two periodic checkpoints, or 0 to only take them through the menu.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static long checkpointInterval = 60000;
+	/**
+	 * The number of checkpoints kept in {@code checkpointDirectory}; older ones are deleted.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static int checkpointsKept = 3;
+	private Checkpointer checkpointer;
+	/**
+	 * Whether the values shown by the counters and trackers are kept over the whole run, so that they can be exported through the menu.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static boolean recordMetrics = false;
+	/**
+	 * The number of ticks between two values kept when {@code recordMetrics} is set.
+	 * Like {@code fieldPrefWidth}, this should be set before the simulator is initialized.
+	 */
+	public static int metricsInterval = 100;
+	private TimeSeriesSink metrics;
+	/**
+	 * The number of milliseconds between two frames read while replaying.
+	 */
+	private static final int REPLAY_INTERVAL = 16;
+	private TrajectoryReader replay;
+	private ScheduledExecutorService player;
+	protected MenuItem replayItem;
+	protected Slider replaySlider;
+	private boolean updatingSlider;
+	// how far the player has played and when, where to jump to next (or NaN), and the tick of the frame read last
+	private double replayPosition;
+	private long replayClock;
+	private volatile double replaySeek = Double.NaN;
+	private volatile long replayTick;
+	/**
+	 * Reads the frame due at the current time into the store of the world, in place of stepping it, while replaying.
+	 * The position in the recording is advanced by the time actually elapsed since the last frame, so dropped or late frames do not slow the replay down.
+	 */
+	protected final Runnable playback = new Runnable(){
+		@Override
+		public void run(){
+			final long now = System.nanoTime();
+			final double seek = replaySeek;
+			if(!Double.isNaN(seek)){
+				replaySeek = Double.NaN;
+				replayPosition = seek;
+			}else
+				replayPosition += (now - replayClock)*replaySpeed/1e9;
+			replayClock = now;
+			try {
+				replayPosition = Math.min(replayPosition, replay.getLastTick());
+				replayTick = replay.readFrame((long) replayPosition, world.getParticles());
+			} catch (IOException e) {
+				return;
+			}
+			if(canvas != null)
+				canvas.update(world.getParticles());
+		}
+	};
 	protected ScheduledExecutorService animator;
 	protected final Runnable animation = new Runnable(){
 		@Override
 		public void run(){
-			for(Thing t: objects)
-				t.move();
-			for(StatusElement e: statuses)
-				if(e instanceof AverageSpeedTracker)
-					((AverageSpeedTracker) e).updateValue();
+			world.step();
+		}
+	};
+	/**
+	 * Steps the simulation back to back until the animator is shut down, when there is no delay between ticks.
+	 */
+	protected final Runnable freeRun = new Runnable(){
+		@Override
+		public void run(){
+			while(!Thread.currentThread().isInterrupted())
+				world.step();
+		}
+	};
+	/**
+	 * The shortest time between two refreshes of the counters' and trackers' labels, in nanoseconds.
+	 */
+	private static final long STATUS_REFRESH_INTERVAL = 100000000L;
+	private long lastStatusRefresh;
+	/**
+	 * Pulls the latest state of the simulation into the GUI once per frame of the display, dropping any ticks in between,
+	 * so that the simulation and the display each run at their own rate.
+	 * The counters and the trackers fed by the simulation are sampled here too, though less often.
+	 */
+	protected final AnimationTimer frameTimer = new AnimationTimer(){
+		@Override
+		public void handle(long now){
+			if(canvas != null)
+				canvas.drawLatest();
+			else
+				for(Thing t: objects)
+					t.updateNode();
+			if(now - lastStatusRefresh >= STATUS_REFRESH_INTERVAL){
+				lastStatusRefresh = now;
+				for(Counter c: objectCounters)
+					c.updateNode();
+				for(Counter c: wallCounters)
+					c.updateNode();
+				for(ReductionTracker t: reductionTrackers)
+					t.updateValue();
+			}
+			if(replay != null && !replaySlider.isValueChanging()){
+				updatingSlider = true;
+				replaySlider.setValue(replayTick);
+				updatingSlider = false;
+			}
+		}
+	};
+	/**
+	 * Reflects each tick of the simulation in the GUI, apart from the objects themselves, which are pulled by {@code frameTimer}.
+	 * The status elements to feed are resolved once in {@code start()}, rather than looked up at every tick.
+	 */
+	protected final World.Listener observer = new World.Listener(){
+		@Override
+		public void ticked(World world, int objectCollisions, int wallCollisions){
+			if(canvas != null)
+				canvas.update(world.getParticles());
+			if(objectCollisions > 0)
+				for(Counter c: objectCounters)
+					c.add(objectCollisions);
+			if(wallCollisions > 0)
+				for(Counter c: wallCounters)
+					c.add(wallCollisions);
+			for(SpeedHistogram h: histograms)
+				h.ticked(world);
 		}
 	};
 	
 	// simulation related
 	protected static ArrayList<Thing> startObjects;
 	protected static ArrayList<Thing> objects;
+	protected static World world;
 	
 	// status related
 	protected static ArrayList<StatusElement> statuses;
+	private Counter[] objectCounters, wallCounters;
+	private ReductionTracker[] reductionTrackers;
+	private SpeedHistogram[] histograms;
 	private static StatusElement.StatusElementInitializer statusMaker;
 	
 	public static final ArrayList<StatusElement> getStatuses(){
@@ -125,6 +326,22 @@ public final class Simulator extends Application {
 		menus = new ArrayList<>();
 		buttons = new ArrayList<>();
 		statuses = statusMaker.getStatuses();
+		resolveStatuses();
+		world.addListener(observer);
+		if(recordMetrics){
+			metrics = new TimeSeriesSink(world, metricsInterval);
+			for(StatusElement e: statuses)
+				e.recordTo(metrics);
+		}
+		if(checkpointDirectory != null){
+			try {
+				checkpointer = new Checkpointer(checkpointDirectory, world, objects, checkpointsKept, checkpointInterval);
+				checkpointer.setTickDelay(tickDelay);
+			} catch (IOException e) {
+				// the directory could not be created, so the simulation runs without checkpoints
+				FileIO.showWarning("checkpointFailed");
+			}
+		}
 		
 		Thread splash = new Thread(AppSplashScreen.splashScreenRunnable());
 		splash.start();
@@ -132,11 +349,18 @@ public final class Simulator extends Application {
 		final BorderPane root = new BorderPane();
 		
 		this.field = new StackPane();
-		for(Thing t: objects)
-			field.getChildren().add(t.toNode());
+		if(!nodeRendering){
+			this.canvas = new ParticleCanvas();
+			// the canvas follows the size of the field, rather than the other way round
+			canvas.setManaged(false);
+			canvas.widthProperty().bind(field.widthProperty());
+			canvas.heightProperty().bind(field.heightProperty());
+		}
+		refreshField();
 		field.heightProperty().addListener(new ChangeListener<Number>(){
 			@Override
 			public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
+				world.setBounds(field.getWidth(), field.getHeight());
 				for(StatusElement e: statuses)
 					if(e instanceof SimulatorHeightTracker)
 						((SimulatorHeightTracker) e).updateValue();
@@ -145,6 +369,7 @@ public final class Simulator extends Application {
 		field.widthProperty().addListener(new ChangeListener<Number>(){
 			@Override
 			public void changed(ObservableValue<? extends Number> arg0,Number arg1, Number arg2) {
+				world.setBounds(field.getWidth(), field.getHeight());
 				for(StatusElement e: statuses)
 					if(e instanceof SimulatorWidthTracker)
 						((SimulatorWidthTracker) e).updateValue();
@@ -165,9 +390,10 @@ public final class Simulator extends Application {
 			public void handle(ActionEvent event) {
 				if(startStop.getOnAction()==pauseAction)
 					startStop.fire();
+				stopReplay();
 				startStop.setDisable(true);
 				objects.clear();
-				field.getChildren().clear();
+				world.getParticles().clear();
 				for(StatusElement e: statuses)
 					if(e instanceof RateCounter)
 						((RateCounter) e).flushCount();
@@ -176,9 +402,10 @@ public final class Simulator extends Application {
 							((Counter) e).resetCount();
 				for(Thing t: startObjects){
 					final Thing clone = t.clone();
+					world.getParticles().add(clone);
 					objects.add(clone);
-					field.getChildren().add(clone.toNode());
 				}
+				refreshField();
 				startStop.setDisable(false);
 			}
 		});
@@ -224,7 +451,19 @@ public final class Simulator extends Application {
 		});
 		
 		speed.getChildren().addAll(speedLabel, speedEdit);
-		bottom.getChildren().addAll(speed);
+		
+		this.replaySlider = new Slider();
+		replaySlider.setVisible(false);
+		replaySlider.setManaged(false);
+		HBox.setHgrow(replaySlider, Priority.ALWAYS);
+		replaySlider.valueProperty().addListener(new ChangeListener<Number>(){
+			@Override
+			public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
+				if(!updatingSlider)
+					replaySeek = newValue.doubleValue();
+			}
+		});
+		bottom.getChildren().addAll(speed, replaySlider);
 		root.setBottom(bottom);
 		
 		final MenuBar menuBar = new MenuBar();
@@ -263,6 +502,7 @@ public final class Simulator extends Application {
 			@Override
 			public void handle(ActionEvent arg0) {
 				if(startStop.getOnAction()==pauseAction) startStop.fire();
+				stopReplay();
 				FileIO.saveData();
 			}
 		});
@@ -273,11 +513,93 @@ public final class Simulator extends Application {
 			@Override
 			public void handle(ActionEvent event) {
 				if(startStop.getOnAction()==pauseAction) startStop.fire();
+				stopReplay();
 				FileIO.loadData();
 			}
 		});
 		
-		saveLoad.getItems().addAll(save, load);
+		this.record = new MenuItem(i18n.getString("record"));
+		record.setOnAction(new EventHandler<ActionEvent>(){
+			@Override
+			public void handle(ActionEvent event) {
+				if(recorder != null){
+					stopRecording();
+					record.setText(i18n.getString("record"));
+					return;
+				}
+				if(startStop.getOnAction()==pauseAction) startStop.fire();
+				stopReplay();
+				final FileChooser recordloc = new FileChooser();
+				recordloc.setTitle(i18n.getString("record"));
+				recordloc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Trajectory", "*.traj"));
+				final File file = recordloc.showSaveDialog(primaryStage);
+				if(file == null)
+					return;
+				try {
+					recorder = new TrajectoryRecorder(file, world, objects, recordStride);
+				} catch (IOException e) {
+					return;
+				}
+				recorder.start();
+				record.setText(i18n.getString("stopRecording"));
+			}
+		});
+		
+		this.replayItem = new MenuItem(i18n.getString("replay"));
+		replayItem.setOnAction(new EventHandler<ActionEvent>(){
+			@Override
+			public void handle(ActionEvent event) {
+				if(replay != null){
+					stopReplay();
+					return;
+				}
+				if(startStop.getOnAction()==pauseAction) startStop.fire();
+				stopRecording();
+				final FileChooser replayloc = new FileChooser();
+				replayloc.setTitle(i18n.getString("replay"));
+				replayloc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Trajectory", "*.traj"));
+				final File file = replayloc.showOpenDialog(primaryStage);
+				if(file != null)
+					startReplay(file);
+			}
+		});
+		
+		final MenuItem checkpoint = new MenuItem(i18n.getString("checkpoint"));
+		menus.add(new Pair<>(checkpoint, "checkpoint"));
+		checkpoint.setDisable(checkpointer == null);
+		checkpoint.setOnAction(new EventHandler<ActionEvent>(){
+			@Override
+			public void handle(ActionEvent event) {
+				// taken at the end of the next tick while running, so the simulation does not have to be paused
+				if(startStop.getOnAction()==pauseAction)
+					checkpointer.request();
+				else
+					checkpointer.checkpointNow();
+			}
+		});
+		
+		final MenuItem exportMetrics = new MenuItem(i18n.getString("exportMetrics"));
+		menus.add(new Pair<>(exportMetrics, "exportMetrics"));
+		exportMetrics.setDisable(metrics == null);
+		exportMetrics.setOnAction(new EventHandler<ActionEvent>(){
+			@Override
+			public void handle(ActionEvent event) {
+				final FileChooser exportloc = new FileChooser();
+				exportloc.setTitle(i18n.getString("exportMetrics"));
+				exportloc.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("Time Series", "*.series"), new FileChooser.ExtensionFilter("CSV", "*.csv"));
+				final File file = exportloc.showSaveDialog(primaryStage);
+				if(file == null)
+					return;
+				try {
+					if(file.getName().toLowerCase().endsWith(".csv"))
+						metrics.writeCsv(file);
+					else
+						metrics.write(file);
+				} catch (IOException e) {}
+			}
+		});
+		
+		saveLoad.getItems().addAll(save, load, record, replayItem, checkpoint, exportMetrics);
 		
 		final Menu language = new Menu(i18n.getString("language"));
 		menus.add(new Pair<>(language, "language"));
@@ -299,12 +621,18 @@ public final class Simulator extends Application {
 		primaryStage.setOnCloseRequest(new EventHandler<WindowEvent>(){
 			@Override
 			public void handle(WindowEvent arg0) {
-				try{
-					animator.shutdownNow();
-				}catch(NullPointerException e){}
+				stopAnimator();
+				frameTimer.stop();
+				stopRecording();
+				stopReplay();
+				if(checkpointer != null){
+					try {
+						checkpointer.close();
+					} catch (IOException e) {}
+				}
+				world.shutdown();
 				for(StatusElement e: statuses)
-					if(e instanceof RateCounter)
-						((RateCounter) e).shutdownTimer();
+					e.shutdown();
 			}
 		});
 		primaryStage.setScene(new Scene(root, WIDTH, HEIGHT));
@@ -312,6 +640,7 @@ public final class Simulator extends Application {
 		for(StatusElement e: statuses)
 			e.updateNode();
 		primaryStage.show();
+		frameTimer.start();
 		primaryStage.setWidth(WIDTH+((fieldPrefWidth>0)?fieldPrefWidth-field.getWidth()+129:0));
 		primaryStage.setHeight(HEIGHT+((fieldPrefHeight>0)?fieldPrefHeight-field.getHeight()+39:0));
 		try {
@@ -319,6 +648,121 @@ public final class Simulator extends Application {
 		} catch (InterruptedException e) {}
 	}
 	
+	/**
+	 * Stops the simulation, if it has been started, and waits for the tick in progress to complete,
+	 * so that the objects can be changed or read as soon as this returns.
+	 */
+	private void stopAnimator(){
+		if(animator == null)
+			return;
+		animator.shutdownNow();
+		try {
+			animator.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Stops the recording made through the menu, if there is one, once every frame recorded so far has been written.
+	 */
+	private void stopRecording(){
+		if(recorder == null)
+			return;
+		try {
+			recorder.stop();
+		} catch (IOException e) {}
+		recorder = null;
+		record.setText(i18n.getString("record"));
+	}
+	
+	/**
+	 * Replaces the objects with those of a recording, and plays it back from the start in place of the simulation.
+	 * The simulation must be paused first. Nothing is done if the file is not a recording, has no frames, or its first frame cannot be read.
+	 * @param file the recording
+	 */
+	private void startReplay(File file){
+		final TrajectoryReader reader;
+		try {
+			reader = new TrajectoryReader(file);
+		} catch (IOException e) {
+			return;
+		}
+		// the first frame is read into a store of its own, so the current objects are kept if it cannot be read
+		final ParticleStore first = new ParticleStore(1);
+		final long lastTick;
+		try {
+			lastTick = reader.getLastTick();
+			if(lastTick < 0)
+				throw new IOException("The recording has no frames!");
+			reader.prepare(first);
+			reader.readFrame(0, first);
+		} catch (IOException e) {
+			try {
+				reader.close();
+			} catch (IOException f) {}
+			return;
+		}
+		objects.clear();
+		world.getParticles().moveFrom(first);
+		objects.addAll(reader.toThings(world.getParticles()));
+		refreshField();
+		replay = reader;
+		replayPosition = 0;
+		replayTick = 0;
+		replaySeek = Double.NaN;
+		replayClock = System.nanoTime();
+		replaySlider.setMax(lastTick);
+		replaySlider.setValue(0);
+		replaySlider.setVisible(true);
+		replaySlider.setManaged(true);
+		startStop.setDisable(true);
+		replayItem.setText(i18n.getString("stopReplay"));
+		player = Executors.newSingleThreadScheduledExecutor();
+		player.scheduleAtFixedRate(playback, REPLAY_INTERVAL, REPLAY_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Stops replaying, if a recording is being replayed. The objects are left as they were in the last frame shown, so that they can be simulated from there.
+	 */
+	private void stopReplay(){
+		if(replay == null)
+			return;
+		player.shutdownNow();
+		try {
+			player.awaitTermination(1, TimeUnit.SECONDS);
+			replay.close();
+		} catch (InterruptedException | IOException e) {}
+		replay = null;
+		player = null;
+		replaySlider.setVisible(false);
+		replaySlider.setManaged(false);
+		startStop.setDisable(false);
+		replayItem.setText(i18n.getString("replay"));
+	}
+	
+	/**
+	 * Sorts the status elements that are fed by the simulation into arrays, so that the observer does not have to look for them at every tick.
+	 */
+	private void resolveStatuses(){
+		final ArrayList<Counter> objectCounters = new ArrayList<>(), wallCounters = new ArrayList<>();
+		final ArrayList<ReductionTracker> reductionTrackers = new ArrayList<>();
+		final ArrayList<SpeedHistogram> histograms = new ArrayList<>();
+		for(StatusElement e: statuses)
+			if(e instanceof ReductionTracker)
+				reductionTrackers.add((ReductionTracker) e);
+			else if(e instanceof SpeedHistogram)
+				histograms.add((SpeedHistogram) e);
+			else if(e instanceof ObjectCollisionRateCounter || e instanceof ObjectCollisionCounter)
+				objectCounters.add((Counter) e);
+			else if(e instanceof WallCollisionRateCounter || e instanceof WallCollisionCounter)
+				wallCounters.add((Counter) e);
+		this.objectCounters = objectCounters.toArray(new Counter[objectCounters.size()]);
+		this.wallCounters = wallCounters.toArray(new Counter[wallCounters.size()]);
+		this.reductionTrackers = reductionTrackers.toArray(new ReductionTracker[reductionTrackers.size()]);
+		this.histograms = histograms.toArray(new SpeedHistogram[histograms.size()]);
+	}
+	
 	/**
 	 * Changes the display language, and applies the change to all affected GUI elements.
 	 * @param l The new display {@code Locale}
@@ -326,6 +770,8 @@ public final class Simulator extends Application {
 	private void changeLanguage(Locale l){
 		i18n.changeLanguage(l);
 		startStop.setText(startStop.getOnAction()==startAction?i18n.getString("start"):i18n.getString("pause"));
+		record.setText(recorder==null?i18n.getString("record"):i18n.getString("stopRecording"));
+		replayItem.setText(replay==null?i18n.getString("replay"):i18n.getString("stopReplay"));
 		for(Pair<? extends Labeled, String> p: labels)
 			p.getKey().setText(i18n.getString(p.getValue()));
 		for(Pair<? extends MenuItem, String> p: menus)
@@ -343,6 +789,53 @@ public final class Simulator extends Application {
 		return objects;
 	}
 	
+	/**
+	 * @return The store holding the physical state of every {@code Thing} in the simulator, in the same order as {@code getObjects()}.
+	 */
+	public ParticleStore getParticles(){
+		return world.getParticles();
+	}
+	
+	/**
+	 * @return The simulation itself, which this application observes.
+	 */
+	public World getWorld(){
+		return world;
+	}
+	
+	/**
+	 * Shows the current list of objects in the field.
+	 * This must be called whenever objects are added to or removed from the simulator.
+	 */
+	public void refreshField(){
+		field.getChildren().clear();
+		if(canvas != null){
+			field.getChildren().add(canvas);
+			canvas.setObjects(objects);
+			canvas.update(world.getParticles());
+		}else{
+			final ArrayList<Node> nodes = new ArrayList<>(objects.size());
+			for(Thing t: objects)
+				nodes.add(t.toNode());
+			field.getChildren().setAll(nodes);
+		}
+	}
+	
+	/**
+	 * Resizes the field to a given size, by resizing the window around it, and resizes the world along with it.
+	 * Nothing is done while the window is full screen or maximized, since it cannot be resized; the world then keeps the size of the field.
+	 * @param width the new width of the field
+	 * @param height the new height of the field
+	 */
+	public void resizeField(double width, double height){
+		if(primaryStage.isFullScreen() || primaryStage.isMaximized())
+			return;
+		// the world follows the field once it is laid out again, which is only at the next pulse
+		world.setBounds(width, height);
+		primaryStage.setWidth(primaryStage.getWidth() + width - field.getWidth());
+		primaryStage.setHeight(primaryStage.getHeight() + height - field.getHeight());
+	}
+	
 	/**
 	 * @return The simulation field.
 	 * It can be used to add and remove objects in the field.
@@ -368,7 +861,18 @@ public final class Simulator extends Application {
 		for(Thing t: initObjects)
 			startObjects.add(t.clone());
 		objects = new ArrayList<>();
-		objects.addAll(initObjects);
+		final ParticleStore particles = new ParticleStore(initObjects.size());
+		for(Thing t: initObjects){
+			particles.add(t);
+			objects.add(t);
+		}
+		world = new World(particles, 0, 0);
+		world.setBroadPhase(broadPhase);
+		world.setParallelism(parallelism);
+		world.setEventDriven(eventDriven);
+		world.setDoubleBuffered(doubleBuffered);
+		world.setTimeStep(timeStep);
+		world.setContinuous(continuous);
 		statusMaker = initStatuses;
 		launch();
 	}